@@ -0,0 +1,81 @@
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * Notes :
+ * 1. JMH refuses to generate benchmarks in the default package, and the benchmarks package cannot refer to classes in
+ * the default package, so benchmarks look this class up reflectively once per trial and measure each map through the
+ * java.util.Map view it returns.  The view is monomorphic per trial, so the extra call inlines away.
+ * 2. Only get, put and size are supported by the views.
+ */
+public class BenchmarkTargets {
+
+    private static final Comparator<Map.Entry<Integer, Integer>> KEY_ORDER = Map.Entry.comparingByKey();
+
+    /**
+     * @param target - one of forgetting, forgetting-oldest-first, concurrent or concurrent-buffered
+     * @param capacity - maximum size of the map
+     */
+    public static Map<Integer, Integer> create(String target, int capacity) {
+        switch (target) {
+            case "forgetting": {
+                var map = new ForgettingMap<Integer, Integer>(capacity, KEY_ORDER);
+                return new View<>(map::get, map::put, map::size);
+            }
+            case "forgetting-oldest-first": {
+                var map = new ForgettingMap<Integer, Integer>(capacity);
+                return new View<>(map::get, map::put, map::size);
+            }
+            case "concurrent": {
+                var map = new ConcurrentForgettingMap<Integer, Integer>(capacity, KEY_ORDER);
+                return new View<>(map::get, map::put, map::size);
+            }
+            case "concurrent-buffered": {
+                var map = new ConcurrentForgettingMap<Integer, Integer>(capacity,
+                        4 * Runtime.getRuntime().availableProcessors(), true,
+                        segmentCapacity -> new ForgettingMap<>(segmentCapacity, KEY_ORDER));
+                return new View<>(map::get, map::put, map::size);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark target " + target);
+        }
+    }
+
+    private static class View<K, V> extends AbstractMap<K, V> {
+        private final Function<K, V> get;
+        private final BiFunction<K, V, V> put;
+        private final IntSupplier size;
+
+        View(Function<K, V> get, BiFunction<K, V, V> put, IntSupplier size) {
+            this.get = get;
+            this.put = put;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            return get.apply((K) key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return put.apply(key, value);
+        }
+
+        @Override
+        public int size() {
+            return size.getAsInt();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
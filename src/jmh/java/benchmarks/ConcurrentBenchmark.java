@@ -0,0 +1,85 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded variants of GetBenchmark and ZipfBenchmark for the thread-safe targets, every available core shares
+ * one map.  Compare with the single-threaded results to see how each target scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ConcurrentBenchmark {
+
+    private static final int KEYS = 1 << 20;
+    private static final int MASK = KEYS - 1;
+
+    @Param({"concurrent", "concurrent-buffered"})
+    public String target;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int capacity;
+
+    @State(Scope.Benchmark)
+    public static class Hits {
+        Map<Integer, Integer> map;
+        Integer[] keys;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentBenchmark benchmark) {
+            map = Targets.filled(benchmark.target, benchmark.capacity);
+            var random = new SplittableRandom(42);
+            keys = new Integer[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                keys[i] = random.nextInt(benchmark.capacity);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Zipf {
+        Map<Integer, Integer> map;
+        Integer[] keys;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrentBenchmark benchmark) {
+            map = Targets.create(benchmark.target, benchmark.capacity);
+            keys = Targets.zipfKeys(KEYS, benchmark.capacity);
+            Targets.readThrough(map, keys);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // start each thread at a different point so threads are not in lock-step on the same key
+            index = new SplittableRandom().nextInt(KEYS);
+        }
+    }
+
+    @Benchmark
+    public Integer get(Hits hits, ThreadIndex thread) {
+        return hits.map.get(hits.keys[thread.index++ & MASK]);
+    }
+
+    @Benchmark
+    public Integer readThrough(Zipf zipf, ThreadIndex thread) {
+        var key = zipf.keys[thread.index++ & MASK];
+        var value = zipf.map.get(key);
+        if (value == null) {
+            zipf.map.put(key, key);
+        }
+        return value;
+    }
+}
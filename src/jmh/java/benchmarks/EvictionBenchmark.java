@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Put of a new key into a full map, so every operation evicts.
+ * putEvictingUnfetched is the fast path, the previous new key was never fetched so is evicted without a search.
+ * putEvictingAfterFetch is the slow path, each new key is fetched once, so every entry ties on the lowest count and the
+ * tie-breaking comparator has to be applied across all of them.  forgetting-oldest-first has no comparator, so both
+ * paths should be O(1).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvictionBenchmark {
+
+    @Param({"forgetting", "forgetting-oldest-first", "concurrent"})
+    public String target;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int capacity;
+
+    private Map<Integer, Integer> map;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = Targets.filled(target, capacity);
+        nextKey = capacity;
+    }
+
+    @Benchmark
+    public Integer putEvictingUnfetched() {
+        return map.put(nextKey++, 0);
+    }
+
+    @Benchmark
+    public Integer putEvictingAfterFetch() {
+        int key = nextKey++;
+        map.put(key, 0);
+        return map.get(key);
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit-heavy get, every key looked up is present, so this measures lookup plus the fetch count promotion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetBenchmark {
+
+    private static final int KEYS = 1 << 16;
+    private static final int MASK = KEYS - 1;
+
+    @Param({"forgetting", "concurrent", "concurrent-buffered"})
+    public String target;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int capacity;
+
+    private Map<Integer, Integer> map;
+    private Integer[] keys;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = Targets.filled(target, capacity);
+        var random = new SplittableRandom(42);
+        keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = random.nextInt(capacity);
+        }
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(keys[index++ & MASK]);
+    }
+}
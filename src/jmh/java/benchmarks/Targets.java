@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.Map;
+
+/**
+ * Reflective bridge to the default package BenchmarkTargets, see the notes there.
+ */
+final class Targets {
+
+    private Targets() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<Integer, Integer> create(String target, int capacity) {
+        try {
+            return (Map<Integer, Integer>) Class.forName("BenchmarkTargets")
+                    .getMethod("create", String.class, int.class)
+                    .invoke(null, target, capacity);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create benchmark target " + target, e);
+        }
+    }
+
+    /**
+     * Fills the map with keys 0 to capacity - 1, none of them fetched.
+     */
+    static Map<Integer, Integer> filled(String target, int capacity) {
+        var map = create(target, capacity);
+        for (int i = 0; i < capacity; i++) {
+            map.put(i, i);
+        }
+        return map;
+    }
+
+    /**
+     * Zipf-distributed keys over four times capacity, boxed up front so boxing stays out of the measurement.
+     */
+    static Integer[] zipfKeys(int size, int capacity) {
+        var ranks = ZipfDistribution.keys(size, 4 * capacity, 1.0, 42);
+        var keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ranks[i];
+        }
+        return keys;
+    }
+
+    /**
+     * Gets every key, putting those that miss, so a measurement starts from a warm map.
+     */
+    static void readThrough(Map<Integer, Integer> map, Integer[] keys) {
+        for (var key : keys) {
+            if (map.get(key) == null) {
+                map.put(key, key);
+            }
+        }
+    }
+}
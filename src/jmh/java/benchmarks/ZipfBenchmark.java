@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixed read-through workload, keys drawn from a Zipf distribution over four times capacity, get and put on a miss.
+ * See ConcurrentBenchmark for the multi-threaded variant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipfBenchmark {
+
+    private static final int KEYS = 1 << 20;
+    private static final int MASK = KEYS - 1;
+
+    @Param({"forgetting", "concurrent", "concurrent-buffered"})
+    public String target;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int capacity;
+
+    private Map<Integer, Integer> map;
+    private Integer[] keys;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = Targets.create(target, capacity);
+        keys = Targets.zipfKeys(KEYS, capacity);
+        Targets.readThrough(map, keys);
+    }
+
+    @Benchmark
+    public Integer readThrough() {
+        var key = keys[index++ & MASK];
+        var value = map.get(key);
+        if (value == null) {
+            map.put(key, key);
+        }
+        return value;
+    }
+}
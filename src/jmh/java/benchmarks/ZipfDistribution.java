@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Notes :
+ * 1. Precomputed Zipf-distributed keys, so sampling cost stays out of the measured operation.
+ * 2. Sampled by rejection-inversion (Hormann and Derflinger), which needs no table of cumulative probabilities, so
+ * keys can be drawn from the tens of millions of items the largest capacities need.
+ * 3. Ranks are hashed over the key space, so the most popular keys are not simply the first ones inserted.
+ */
+final class ZipfDistribution {
+
+    private final int items;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralItems;
+    private final double s;
+
+    private ZipfDistribution(int items, double exponent) {
+        this.items = items;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralItems = hIntegral(items + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * @param size - number of keys to generate, a power of 2 so callers can cycle with a mask
+     * @param items - number of distinct keys
+     * @param exponent - skew, around 1 for typical cache traffic
+     */
+    static int[] keys(int size, int items, double exponent, long seed) {
+        var distribution = new ZipfDistribution(items, exponent);
+        var random = new SplittableRandom(seed);
+        var keys = new int[size];
+        for (int i = 0; i < size; i++) {
+            long rank = distribution.sample(random);
+            keys[i] = (int) (((rank * 0x9E3779B97F4A7C15L) >>> 1) % items);
+        }
+        return keys;
+    }
+
+    private int sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralItems + random.nextDouble() * (hIntegralX1 - hIntegralItems);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            k = Math.max(1, Math.min(items, k));
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
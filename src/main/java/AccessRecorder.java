@@ -0,0 +1,225 @@
+import lombok.Builder;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Notes :
+ * 1. Opt-in recorder of ForgettingMap gets and puts, for offline analysis of real access patterns, e.g. replaying in
+ * the simulator.  Each record is the key's hash, the operation, whether a get hit, and a timestamp.
+ * 2. Sampled by key hash, so a sampled key has every access recorded and one that is not costs a multiply and a
+ * compare.  Reuse distances within the sample are preserved, which is what miss ratio estimates need, where sampling
+ * operations at random would break them up.
+ * 3. Records go into a per-thread batch, written only by its thread, so recording takes no lock and no CAS.  A full
+ * batch is handed to a background thread through a lock-free queue, which gzips it to the file.  If the writer falls
+ * behind and maxPendingBatches are queued, the batch is dropped and counted rather than making the caller wait.
+ * 4. The file is the simulator's binary trace format, version 2, flushed after each batch so it can be read while
+ * recording.  Records sit in their thread's batch until it fills, and close() cannot reach batches still being
+ * filled, so up to one batch per thread is lost at the end.
+ * 5. One recorder may be shared by several maps, e.g. every segment of a ConcurrentForgettingMap.
+ */
+public class AccessRecorder implements Closeable {
+
+    static final byte[] MAGIC = {'F', 'M', 'T', 'R'};
+    static final int VERSION = 2;
+    static final int GET = 0;
+    static final int PUT = 1;
+    static final int HIT = 2;
+
+    private static final int DEFAULT_BATCH_SIZE = 4096;
+    private static final int DEFAULT_MAX_PENDING_BATCHES = 64;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final long sampleThreshold;
+    private final int batchSize;
+    private final int maxPendingBatches;
+    private final long startTime = System.nanoTime();
+    private final ThreadLocal<Batch> batches;
+    private final ConcurrentLinkedQueue<Batch> pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Batch> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final OutputStream out;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile long written;
+    private volatile IOException failure;
+    // writer thread state, the previous record written
+    private long previousKey;
+    private long previousTime;
+
+    /**
+     * @param file - created or truncated, written gzipped
+     * @param samplingRate - fraction of keys recorded, between 0 and 1, 0 for the default of 1 in 100
+     * @param batchSize - records per thread between hand-offs to the writer, 0 for the default of 4096
+     * @param maxPendingBatches - full batches queued for the writer before more are dropped, 0 for the default of 64
+     */
+    @Builder
+    private AccessRecorder(Path file, double samplingRate, int batchSize, int maxPendingBatches) {
+        if (samplingRate < 0 || samplingRate > 1) {
+            throw new IllegalArgumentException("samplingRate must be between 0 and 1, was " + samplingRate);
+        }
+        this.sampleThreshold = (long) ((samplingRate == 0 ? 0.01 : samplingRate) * (1L << 32));
+        this.batchSize = batchSize <= 0 ? DEFAULT_BATCH_SIZE : batchSize;
+        this.maxPendingBatches = maxPendingBatches <= 0 ? DEFAULT_MAX_PENDING_BATCHES : maxPendingBatches;
+        this.batches = ThreadLocal.withInitial(() -> new Batch(this.batchSize));
+        try {
+            this.out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), 1 << 16, true);
+            out.write(MAGIC);
+            out.write(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot record to " + file, e);
+        }
+        this.writer = new Thread(this::writeBatches, "access-recorder-" + file.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void recordGet(Object key, boolean hit) {
+        record(key, hit ? GET | HIT : GET);
+    }
+
+    void recordPut(Object key) {
+        record(key, PUT);
+    }
+
+    /**
+     * @return records written to the file so far
+     */
+    public long writtenCount() {
+        return written;
+    }
+
+    /**
+     * @return records sampled but dropped because the writer had fallen behind
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes every full batch, then closes the file.  Later records are ignored.
+     * @throws IOException - if writing failed at any point
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void record(Object key, int flags) {
+        int hash = key.hashCode();
+        // sample on a mix of the hash, so the choice does not correlate with the segment or table slot
+        int mixed = (hash ^ (hash >>> 16)) * 0xc2b2ae35;
+        if (((mixed ^ (mixed >>> 16)) & 0xffffffffL) >= sampleThreshold || closed) {
+            return;
+        }
+        var batch = batches.get();
+        int i = batch.size * 2;
+        batch.records[i] = System.nanoTime() - startTime;
+        batch.records[i + 1] = ((long) hash << 8) | flags;
+        if (++batch.size == batchSize) {
+            handOff(batch);
+        }
+    }
+
+    private void handOff(Batch batch) {
+        if (pendingCount.incrementAndGet() > maxPendingBatches) {
+            pendingCount.decrementAndGet();
+            dropped.add(batch.size);
+            batch.size = 0;
+            return;
+        }
+        pending.offer(batch);
+        var next = free.poll();
+        batches.set(next != null ? next : new Batch(batchSize));
+    }
+
+    private void writeBatches() {
+        try {
+            while (true) {
+                boolean stopping = closed;
+                var batch = pending.poll();
+                if (batch == null) {
+                    if (stopping) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                pendingCount.decrementAndGet();
+                write(batch);
+                batch.size = 0;
+                free.offer(batch);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    private void write(Batch batch) throws IOException {
+        var records = batch.records;
+        for (int i = 0; i < batch.size * 2; i += 2) {
+            long time = records[i];
+            long key = (int) (records[i + 1] >> 8);
+            writeVarint(zigzag(key - previousKey));
+            writeVarint(zigzag(time - previousTime));
+            out.write((int) records[i + 1] & 0xff);
+            previousKey = key;
+            previousTime = time;
+        }
+        out.flush();
+        written += batch.size;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Records of one thread, as pairs of timestamp and (hash << 8 | flags).
+     */
+    private static final class Batch {
+        private final long[] records;
+        private int size;
+
+        Batch(int batchSize) {
+            this.records = new long[batchSize * 2];
+        }
+    }
+}
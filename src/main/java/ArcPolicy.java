@@ -0,0 +1,105 @@
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Notes :
+ * 1. Adaptive replacement cache.  Entries fetched once since they were added are kept in a recent list, entries
+ * fetched again move to a frequent list, both in LRU order.  The keys of entries evicted from each list are
+ * remembered in a ghost list, and a new key found in a ghost list goes straight to the frequent list.
+ * 2. A hit on a recent ghost means the recent list was too short, so its target size grows, and a hit on a frequent
+ * ghost shrinks it.  The victim is the oldest recent entry while the recent list is over its target, otherwise the
+ * oldest frequent one, so the balance between recency and frequency follows the workload.
+ * 3. Adapted to selecting a victim before the new key is seen, so unlike the original a tie with the target does not
+ * depend on whether the new key is a frequent ghost, the recent list is only preferred when strictly over target.
+ * 4. Ghosts are bounded as in the original, recent entries plus recent ghosts within capacity and everything within
+ * twice capacity, so at most 2 * capacity keys are retained.  Only evicted keys become ghosts, not expired or removed
+ * ones.  All O(1).
+ * 5. Unlike the live lists, which link the map's own nodes, the ghost lists are LinkedHashSets of keys, so every
+ * eviction allocates a set entry and every ghost trimmed becomes garbage.  ARC is the one policy with per-eviction
+ * garbage, the price of its ghost hit rates, and it also keeps up to 2 * capacity keys reachable after eviction.
+ */
+class ArcPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private final int capacity;
+    private final NodeList<K, V> recent = new NodeList<>();
+    private final NodeList<K, V> frequent = new NodeList<>();
+    private final LinkedHashSet<K> recentGhosts = new LinkedHashSet<>();
+    private final LinkedHashSet<K> frequentGhosts = new LinkedHashSet<>();
+    private int recentTarget;
+
+    ArcPolicy(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void recordInsert(ForgettingMap.Node<K, V> node) {
+        K key = node.getKey();
+        if (recentGhosts.contains(key)) {
+            recentTarget = Math.min(capacity, recentTarget + Math.max(1, frequentGhosts.size() / recentGhosts.size()));
+            recentGhosts.remove(key);
+            frequent.linkLast(node);
+        } else if (frequentGhosts.contains(key)) {
+            recentTarget = Math.max(0, recentTarget - Math.max(1, recentGhosts.size() / frequentGhosts.size()));
+            frequentGhosts.remove(key);
+            frequent.linkLast(node);
+        } else {
+            recent.linkLast(node);
+        }
+        trimGhosts();
+    }
+
+    @Override
+    public void recordAccess(ForgettingMap.Node<K, V> node) {
+        if (node.queue == recent) {
+            recent.unlink(node);
+            frequent.linkLast(node);
+        } else {
+            frequent.moveToTail(node);
+        }
+    }
+
+    @Override
+    public void recordRemoval(ForgettingMap.Node<K, V> node) {
+        node.queue.unlink(node);
+    }
+
+    @Override
+    public void recordEviction(ForgettingMap.Node<K, V> node) {
+        var list = node.queue;
+        list.unlink(node);
+        // trimmed on the next insert, once it has been checked against the ghosts
+        (list == recent ? recentGhosts : frequentGhosts).add(node.getKey());
+    }
+
+    @Override
+    public ForgettingMap.Node<K, V> selectVictim() {
+        var list = !recent.isEmpty() && (recent.size() > recentTarget || frequent.isEmpty()) ? recent : frequent;
+        return list.head;
+    }
+
+    /**
+     * @return number of evicted keys remembered
+     */
+    int ghostCount() {
+        return recentGhosts.size() + frequentGhosts.size();
+    }
+
+    private void trimGhosts() {
+        while (!recentGhosts.isEmpty() && recent.size() + recentGhosts.size() > capacity) {
+            removeEldest(recentGhosts);
+        }
+        while (!frequentGhosts.isEmpty()
+                && recent.size() + frequent.size() + recentGhosts.size() + frequentGhosts.size() > 2 * capacity) {
+            removeEldest(frequentGhosts);
+        }
+    }
+
+    private static void removeEldest(LinkedHashSet<?> ghosts) {
+        Iterator<?> eldest = ghosts.iterator();
+        eldest.next();
+        eldest.remove();
+    }
+}
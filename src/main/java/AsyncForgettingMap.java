@@ -0,0 +1,96 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Notes :
+ * 1. Asynchronous facade over a ConcurrentForgettingMap of futures, so callers on async pipelines never block on a
+ * load.  get returns the future already in the map, or starts one through the loader, which should not block.
+ * 2. In-flight futures are held in the map like any other value, so every concurrent get of a key shares one load
+ * (ConcurrentForgettingMap#computeIfAbsent is single-flight) and a fetch of a loading key counts towards keeping it.
+ * 3. A future that fails, or completes with null, is removed as soon as it completes, so it neither occupies a slot
+ * counted against capacity nor poisons later gets, the next get loads again.  Removal is conditional on the map still
+ * holding that future, so it never drops a newer one.  A loader that throws is treated as a failed future.
+ * 4. While loading, a future counts as one entry; a weigher on the backing map sees the future, not the value.
+ */
+public class AsyncForgettingMap<K, V> {
+
+    private final ConcurrentForgettingMap<K, CompletableFuture<V>> map;
+    private final Function<? super K, ? extends CompletableFuture<V>> loader;
+
+    /**
+     * @param capacity - maximum number of keys, loaded or loading, before least fetched are dropped
+     * @param loader - starts an asynchronous load of a missing key
+     */
+    public AsyncForgettingMap(int capacity, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        this(new ConcurrentForgettingMap<>(capacity), loader);
+    }
+
+    /**
+     * @param map - holds the futures, e.g. one with buffered reads or expiry configured on its segments
+     * @param loader - starts an asynchronous load of a missing key
+     */
+    public AsyncForgettingMap(ConcurrentForgettingMap<K, CompletableFuture<V>> map,
+                              Function<? super K, ? extends CompletableFuture<V>> loader) {
+        this.map = map;
+        this.loader = loader;
+    }
+
+    /**
+     * @return the key's future, loaded, loading or just started by the loader
+     */
+    public CompletableFuture<V> get(K key) {
+        var future = map.computeIfAbsent(key, this::load);
+        if (future.isCompletedExceptionally() || (future.isDone() && future.join() == null)) {
+            // may have failed before it was added, when the completion callback had nothing to remove
+            map.remove(key, future);
+        }
+        return future;
+    }
+
+    /**
+     * @return the key's future, loaded or loading, null if absent.  Counts as a fetch
+     */
+    public CompletableFuture<V> getIfPresent(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Associates the key with a future, removed again if it fails or completes with null.
+     * @return the previous future, null if absent
+     */
+    public CompletableFuture<V> put(K key, CompletableFuture<V> future) {
+        var previous = map.put(key, future);
+        removeOnFailure(key, future);
+        return previous;
+    }
+
+    public CompletableFuture<V> remove(K key) {
+        return map.remove(key);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    private CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future;
+        try {
+            future = loader.apply(key);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        if (future == null) {
+            future = CompletableFuture.failedFuture(new NullPointerException("loader returned null for " + key));
+        }
+        removeOnFailure(key, future);
+        return future;
+    }
+
+    private void removeOnFailure(K key, CompletableFuture<V> future) {
+        future.whenComplete((value, failure) -> {
+            if (failure != null || value == null) {
+                map.remove(key, future);
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Notes :
+ * 1. Second chance, entries sit in a ring swept by a hand.  A fetch only sets the entry's referenced flag, with no
+ * relinking, and the hand clears flags as it passes until it reaches an entry without one, the victim.  Selection is
+ * amortised O(1), each flag cleared was paid for by the fetch that set it.
+ * 2. New entries join just behind the hand, so they are the last the sweep reaches, and start unreferenced, so one
+ * that is never fetched goes on the first pass.
+ */
+class ClockPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private final NodeList<K, V> ring = new NodeList<>();
+    private ForgettingMap.Node<K, V> hand;
+
+    @Override
+    public void recordInsert(ForgettingMap.Node<K, V> node) {
+        node.referenced = false;
+        if (hand == null) {
+            ring.linkLast(node);
+        } else {
+            ring.linkBefore(node, hand);
+        }
+    }
+
+    @Override
+    public void recordAccess(ForgettingMap.Node<K, V> node) {
+        node.referenced = true;
+    }
+
+    @Override
+    public void recordRemoval(ForgettingMap.Node<K, V> node) {
+        if (node == hand) {
+            hand = ring.size() == 1 ? null : successor(node);
+        }
+        ring.unlink(node);
+    }
+
+    @Override
+    public void recordReplacement(ForgettingMap.Node<K, V> node, ForgettingMap.Node<K, V> replacement) {
+        ring.replace(node, replacement);
+        if (node == hand) {
+            hand = replacement;
+        }
+    }
+
+    @Override
+    public ForgettingMap.Node<K, V> selectVictim() {
+        if (hand == null) {
+            hand = ring.head;
+            if (hand == null) {
+                return null;
+            }
+        }
+        while (hand.referenced) {
+            hand.referenced = false;
+            hand = successor(hand);
+        }
+        return hand;
+    }
+
+    private ForgettingMap.Node<K, V> successor(ForgettingMap.Node<K, V> node) {
+        return node.next != null ? node.next : ring.head;
+    }
+}
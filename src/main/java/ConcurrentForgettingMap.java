@@ -0,0 +1,515 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Notes :
+ * 1. Thread-safe counterpart to ForgettingMap.  Keys are partitioned by hash into independently locked segments, each
+ * a ForgettingMap with its own share of the capacity, so operations on keys in different segments never contend.
+ * 2. Least-used eviction is per segment, so the evicted key is the least fetched of its segment, not of the whole map.
+ * With a reasonable hash spread and more entries than segments this is a close approximation.
+ * 3. size() sums the segments one at a time, so is only a snapshot while other threads are writing.
+ * 4. With buffered reads, each segment also publishes its associations in a ConcurrentHashMap so get is a lock-free
+ * lookup.  The fetch is recorded in a striped ReadBuffer and replayed against the segment's ForgettingMap in batches,
+ * by whichever thread next holds the segment lock, so readers never write to shared eviction state.  Fetch counts may
+ * lag by up to a buffer's worth of reads, and reads dropped by a full buffer are not counted.  The price is memory and
+ * write cost, the ConcurrentHashMap is a second index of every key beside the segment's own table, and each put
+ * allocates a Published wrapper for the value and its deadlines, so expect roughly twice the per-entry footprint of
+ * the locked mode and one more allocation per write.  Prefer it for read-heavy maps with hot keys.
+ * 5. For stats across the whole map, have the segment factory give every segment the same ConcurrentStatsCounter.
+ * 6. Expiry is configured on the segments' ForgettingMaps.  Buffered reads publish each value with its write deadline
+ * and last fetch time, and a lock-free get that finds either has run out falls back to the locked path, so it never
+ * returns an expired value.  Readers refresh the fetch time at most every 1/64 of the idle time, so one hot key is not
+ * a contended write, and the segment consults it before expiring an entry for being idle.
+ * 7. computeIfAbsent is single-flight, concurrent misses on the same key wait for one load rather than each calling
+ * the mapping function.  In-flight loads are tracked per segment, and the load itself runs outside the segment lock,
+ * so it does not block other keys of the segment.  A failed load is rethrown to every waiter and not remembered.  A
+ * put of the key while it loads wins, the loaded value is dropped and every caller gets the put value.
+ * 8. getAll and putAll group the batch by segment and take each segment's lock once, and putAll makes one eviction
+ * pass per segment, see ForgettingMap#putAll.  With buffered reads getAll is lock-free, key by key.
+ * 9. To record accesses, give every segment the same AccessRecorder, and to estimate hit ratios at other capacities the
+ * same MissRatioCurve.  Lock-free buffered reads are recorded and measured too.
+ * 10. setMaximumSize splits the new bound between the segments, and each shrinks incrementally, see ForgettingMap.
+ * The number of segments is fixed at construction, so a map grown far past its original capacity keeps its striping.
+ */
+public class ConcurrentForgettingMap<K, V> {
+
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 4 * NCPU;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped, ties broken oldest first
+     * @see ForgettingMap#ForgettingMap(int)
+     */
+    public ConcurrentForgettingMap(int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL, ForgettingMap::new);
+    }
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     * @param tieBreakingComparator - applied within a segment if there's more than one key with the least number of fetches
+     * @see ForgettingMap#ForgettingMap(int, Comparator)
+     */
+    public ConcurrentForgettingMap(int capacity, Comparator<Map.Entry<K, V>> tieBreakingComparator) {
+        this(capacity, DEFAULT_CONCURRENCY_LEVEL, segmentCapacity -> new ForgettingMap<>(segmentCapacity, tieBreakingComparator));
+    }
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     * @param concurrencyLevel - estimated number of concurrently updating threads, rounded up to a power of 2 and
+     *                         capped at capacity to give the number of segments
+     * @param segmentFactory - creates the ForgettingMap backing a segment, given that segment's share of capacity
+     */
+    public ConcurrentForgettingMap(int capacity, int concurrencyLevel, IntFunction<ForgettingMap<K, V>> segmentFactory) {
+        this(capacity, concurrencyLevel, false, segmentFactory);
+    }
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     * @param concurrencyLevel - estimated number of concurrently updating threads, rounded up to a power of 2 and
+     *                         capped at capacity to give the number of segments
+     * @param bufferedReads - if true, get does not lock and fetch counts are updated in batches, at the cost of a
+     *                      second index of every key and a wrapper allocated per write, see note 4
+     * @param segmentFactory - creates the ForgettingMap backing a segment, given that segment's share of capacity
+     */
+    public ConcurrentForgettingMap(int capacity, int concurrencyLevel, boolean bufferedReads,
+                                   IntFunction<ForgettingMap<K, V>> segmentFactory) {
+        if (capacity < 1 || concurrencyLevel < 1) {
+            throw new IllegalArgumentException("capacity and concurrencyLevel must be positive");
+        }
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount * 2 <= capacity) {
+            segmentCount <<= 1;
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        @SuppressWarnings("unchecked")
+        var segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        this.segments = segments;
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentCapacity = capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0);
+            segments[i] = new Segment<>(segmentFactory.apply(segmentCapacity), bufferedReads);
+        }
+    }
+
+    /**
+     * @see ForgettingMap#get(Object)
+     */
+    public V get(K key) {
+        var segment = segmentFor(key);
+        if (segment.values != null) {
+            return segment.getBuffered(key);
+        }
+        segment.lock();
+        try {
+            return segment.map.get(key);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * @see ForgettingMap#put(Object, Object)
+     */
+    public V put(K key, V value) {
+        return put(key, value, null);
+    }
+
+    /**
+     * @see ForgettingMap#put(Object, Object, Duration)
+     */
+    public V put(K key, V value, Duration timeToLive) {
+        var segment = segmentFor(key);
+        segment.lock();
+        try {
+            segment.drainReads();
+            var previous = segment.map.put(key, value, timeToLive);
+            segment.publish(key, value);
+            return previous;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Fetches each key, locking each segment once for all of its keys.
+     * @param results - receives the value of each key present, may be reused between calls
+     * @return results
+     * @see ForgettingMap#getAll(Iterable, Map)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Map<K, V> getAll(Iterable<? extends K> keys, Map<K, V> results) {
+        if (segments[0].values != null) {
+            for (K key : keys) {
+                var value = segmentFor(key).getBuffered(key);
+                if (value != null) {
+                    results.put(key, value);
+                }
+            }
+            return results;
+        }
+        var keysBySegment = new List[segments.length];
+        for (K key : keys) {
+            int index = segmentIndex(key);
+            if (keysBySegment[index] == null) {
+                keysBySegment[index] = new ArrayList<K>();
+            }
+            keysBySegment[index].add(key);
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (keysBySegment[i] != null) {
+                var segment = segments[i];
+                segment.lock();
+                try {
+                    segment.map.getAll((List<K>) keysBySegment[i], results);
+                } finally {
+                    segment.unlock();
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Puts every association, locking each segment once and evicting for all of its new keys in one pass.
+     * @see ForgettingMap#putAll(Map)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        var entriesBySegment = new Map[segments.length];
+        entries.forEach((key, value) -> {
+            int index = segmentIndex(key);
+            if (entriesBySegment[index] == null) {
+                entriesBySegment[index] = new HashMap<K, V>();
+            }
+            entriesBySegment[index].put(key, value);
+        });
+        for (int i = 0; i < segments.length; i++) {
+            if (entriesBySegment[i] != null) {
+                var segment = segments[i];
+                Map<K, V> segmentEntries = entriesBySegment[i];
+                segment.lock();
+                try {
+                    segment.drainReads();
+                    segment.map.putAll(segmentEntries);
+                    segmentEntries.forEach(segment::publish);
+                } finally {
+                    segment.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Single-flight, if other threads miss on the key while it is loading they wait for this load and share its
+     * result (or its exception) rather than loading it again.  The mapping function runs without holding the
+     * segment lock, it must not load the same key recursively.
+     * @see ForgettingMap#computeIfAbsent(Object, Function)
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        var segment = segmentFor(key);
+        if (segment.values != null) {
+            var value = segment.getBuffered(key);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        Load<V> load;
+        boolean owner = false;
+        segment.lock();
+        try {
+            segment.drainReads();
+            // a buffered miss was already counted, so only count the fetch
+            var value = segment.values != null ? segment.map.recordAccess(key) : segment.map.get(key);
+            if (value != null) {
+                return value;
+            }
+            load = segment.loads.get(key);
+            if (load == null) {
+                load = new Load<>();
+                segment.loads.put(key, load);
+                owner = true;
+            } else if (load.loader == Thread.currentThread()) {
+                throw new IllegalStateException("recursive load of " + key);
+            }
+        } finally {
+            segment.unlock();
+        }
+        return owner ? segment.load(key, mappingFunction, load) : load.await();
+    }
+
+    /**
+     * @see ForgettingMap#remove(Object)
+     */
+    public V remove(K key) {
+        var segment = segmentFor(key);
+        segment.lock();
+        try {
+            segment.drainReads();
+            var previous = segment.map.remove(key);
+            if (segment.values != null) {
+                segment.values.remove(key);
+            }
+            return previous;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * @see ForgettingMap#remove(Object, Object)
+     */
+    public boolean remove(K key, V value) {
+        var segment = segmentFor(key);
+        segment.lock();
+        try {
+            segment.drainReads();
+            boolean removed = segment.map.remove(key, value);
+            if (removed && segment.values != null) {
+                segment.values.remove(key);
+            }
+            return removed;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (var segment : segments) {
+            segment.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Splits the new bound between the segments as the capacity was split, each shrinking over its own following
+     * operations, one segment lock at a time.
+     * @see ForgettingMap#setMaximumSize(long)
+     */
+    public void setMaximumSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative, was " + maximumSize);
+        }
+        for (int i = 0; i < segments.length; i++) {
+            var segment = segments[i];
+            segment.lock();
+            try {
+                segment.map.setMaximumSize(maximumSize / segments.length + (i < maximumSize % segments.length ? 1 : 0));
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        return segments[segmentIndex(key)];
+    }
+
+    private int segmentIndex(K key) {
+        // top bits of a multiplicative hash, so the segment does not correlate with the bits each
+        // segment's table uses to pick a slot
+        int hash = key.hashCode() * 0x9E3779B9;
+        return segments.length == 1 ? 0 : hash >>> segmentShift;
+    }
+
+    // never serialized, Serializable only through ReentrantLock
+    @SuppressWarnings("serial")
+    private static class Segment<K, V> extends ReentrantLock {
+        private final ForgettingMap<K, V> map;
+        private final ConcurrentHashMap<K, Published<V>> values;
+        private final ReadBuffer<K> readBuffer;
+        private final long idleNanos;
+        private final AccessRecorder recorder;
+        private final MissRatioCurve missRatioCurve;
+        // in-flight computeIfAbsent loads, guarded by the lock
+        private final Map<K, Load<V>> loads = new HashMap<>();
+
+        Segment(ForgettingMap<K, V> map, boolean bufferedReads) {
+            this.map = map;
+            this.idleNanos = map.expireAfterAccessNanos();
+            this.recorder = map.accessRecorder();
+            this.missRatioCurve = map.missRatioCurve();
+            if (bufferedReads) {
+                this.values = new ConcurrentHashMap<>();
+                this.readBuffer = new ReadBuffer<>(NCPU);
+                map.setEvictionListener((key, value) -> values.remove(key));
+                map.setAccessTimeSource(key -> {
+                    var published = values.get(key);
+                    return published == null ? Long.MIN_VALUE : published.accessedAt;
+                });
+            } else {
+                this.values = null;
+                this.readBuffer = null;
+            }
+        }
+
+        V getBuffered(K key) {
+            var published = values.get(key);
+            if (published == null) {
+                map.statsCounter().recordMiss();
+                if (recorder != null) {
+                    recorder.recordGet(key, false);
+                }
+                if (missRatioCurve != null) {
+                    missRatioCurve.record(key);
+                }
+                return null;
+            }
+            if (published.writeExpiresAt != Long.MAX_VALUE || idleNanos > 0) {
+                long now = map.currentTime();
+                if (published.writeExpiresAt <= now || (idleNanos > 0 && now - published.accessedAt >= idleNanos)) {
+                    return getLocked(key);
+                }
+                if (idleNanos > 0 && now - published.accessedAt > idleNanos >>> 6) {
+                    published.accessedAt = now;
+                }
+            }
+            map.statsCounter().recordHit();
+            if (recorder != null) {
+                recorder.recordGet(key, true);
+            }
+            if (missRatioCurve != null) {
+                missRatioCurve.record(key);
+            }
+            if (readBuffer.offer(key) && tryLock()) {
+                try {
+                    drainReads();
+                } finally {
+                    unlock();
+                }
+            }
+            return published.value;
+        }
+
+        private V getLocked(K key) {
+            lock();
+            try {
+                drainReads();
+                var value = map.get(key);
+                if (value != null) {
+                    publish(key, value);
+                }
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Runs a load this thread owns, then adds the result and wakes any waiters.
+         */
+        V load(K key, Function<? super K, ? extends V> mappingFunction, Load<V> load) {
+            V value;
+            try {
+                value = mappingFunction.apply(key);
+            } catch (RuntimeException | Error e) {
+                finishLoad(key, null);
+                load.completeExceptionally(e);
+                throw e;
+            }
+            var current = finishLoad(key, value);
+            load.complete(current);
+            return current;
+        }
+
+        /**
+         * Adds the loaded value only if the key is still absent, a value put while the load ran is newer and is kept.
+         * @return the key's value once the load is done, null if there is none
+         */
+        private V finishLoad(K key, V value) {
+            lock();
+            try {
+                loads.remove(key);
+                drainReads();
+                var current = map.peek(key);
+                if (current != null) {
+                    return current;
+                }
+                if (value != null) {
+                    map.put(key, value);
+                    publish(key, value);
+                }
+                return value;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Makes the key's current association visible to lock-free reads, if it was kept.  Must hold the lock.
+         */
+        void publish(K key, V value) {
+            if (values != null && map.containsKey(key)) {
+                values.put(key, new Published<>(value, map.writeExpirationTime(key),
+                        idleNanos > 0 ? map.currentTime() : 0));
+            }
+        }
+
+        /**
+         * Replays buffered fetches against the ForgettingMap, must hold the lock.
+         */
+        void drainReads() {
+            if (readBuffer != null) {
+                readBuffer.drain(map::recordAccess);
+            }
+        }
+    }
+
+    /**
+     * An in-flight load, completed by the thread that started it.
+     */
+    private static class Load<V> extends CompletableFuture<V> {
+        private final Thread loader = Thread.currentThread();
+
+        /**
+         * @return the loaded value, rethrowing the loader's exception as is
+         */
+        V await() {
+            try {
+                return join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A value as published to lock-free readers, with its write deadline and when it was last fetched.
+     */
+    private static class Published<V> {
+        private final V value;
+        private final long writeExpiresAt;
+        // racy writes from readers, a lost update only makes the entry look idle a little sooner
+        private volatile long accessedAt;
+
+        Published(V value, long writeExpiresAt, long accessedAt) {
+            this.value = value;
+            this.writeExpiresAt = writeExpiresAt;
+            this.accessedAt = accessedAt;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe StatsCounter.  Each count is a LongAdder, which stripes increments across cells under contention, so
+ * threads recording on different cores do not fight over one cache line.
+ */
+public class ConcurrentStatsCounter implements StatsCounter {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictionScans = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @Override
+    public void recordHit() {
+        hits.increment();
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void recordPut() {
+        puts.increment();
+    }
+
+    @Override
+    public void recordReplacement() {
+        replacements.increment();
+    }
+
+    @Override
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    @Override
+    public void recordExpiration() {
+        expirations.increment();
+    }
+
+    @Override
+    public void recordEvictionScan() {
+        evictionScans.increment();
+    }
+
+    /**
+     * Counts are read one at a time, so while other threads are recording the snapshot is not atomic.
+     */
+    @Override
+    public ForgettingMapStats snapshot() {
+        return new ForgettingMapStats(hits.sum(), misses.sum(), puts.sum(), replacements.sum(), evictions.sum(),
+                evictionScans.sum(), expirations.sum());
+    }
+}
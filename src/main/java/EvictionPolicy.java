@@ -0,0 +1,105 @@
+/**
+ * Notes :
+ * 1. Decides which entry a ForgettingMap drops when a put would take it over capacity.  The map reports every entry
+ * added, fetched and removed, and asks for a victim when it needs space, so every policy sees the same events and they
+ * can be compared like for like, e.g. in the simulator.
+ * 2. Each call is O(1), or amortised O(1), so no policy makes get or put scale with the size of the map.  The one
+ * exception is LFU breaking ties with a comparator, see ForgettingMap.
+ * 3. Policies keep their bookkeeping in links on the map's own nodes (a NodeList each node is in), rather than in
+ * collections of their own, so tracking an entry allocates nothing.  ARC also remembers the keys of recent victims.
+ * 4. Stateful and NOT thread-safe, an instance belongs to one map, e.g. each segment of a ConcurrentForgettingMap is
+ * built with its own.
+ */
+public interface EvictionPolicy<K, V> {
+
+    /**
+     * Least fetched first, ties broken oldest first.  The map's default.
+     */
+    static <K, V> EvictionPolicy<K, V> lfu() {
+        return new LfuPolicy<>(null, 0, StatsCounter.disabled(), 0);
+    }
+
+    /**
+     * Least recently added or fetched first.
+     */
+    static <K, V> EvictionPolicy<K, V> lru() {
+        return new LruPolicy<>();
+    }
+
+    /**
+     * Second chance, an approximation of LRU where a fetch only sets a flag on the entry.
+     */
+    static <K, V> EvictionPolicy<K, V> clock() {
+        return new ClockPolicy<>();
+    }
+
+    /**
+     * Adaptive replacement cache, balancing recency against frequency by the hits on recently evicted keys.
+     * @param capacity - number of entries the map holds, also bounds the evicted keys remembered
+     */
+    static <K, V> EvictionPolicy<K, V> arc(int capacity) {
+        return new ArcPolicy<>(capacity);
+    }
+
+    /**
+     * Window TinyLFU, a small LRU window in front of a segmented LRU main region whose admission is guarded by a
+     * frequency sketch, for workloads that mix recency and frequency.
+     * @param capacity - number of entries the map holds, sizes the window, segments and sketch
+     */
+    static <K, V> EvictionPolicy<K, V> windowTinyLfu(int capacity) {
+        return new WindowTinyLfuPolicy<>(capacity);
+    }
+
+    /**
+     * Segmented LFU, new entries wait in a probation segment until fetched twice, so scans do not displace entries
+     * in the protected segment.
+     * @param capacity - number of entries the map holds, sizes the protected segment
+     * @param agingPeriod - number of gets and puts between halving the protected fetch counts, 0 to never age
+     */
+    static <K, V> EvictionPolicy<K, V> segmentedLfu(int capacity, int agingPeriod) {
+        return new SegmentedLfuPolicy<>(capacity, agingPeriod);
+    }
+
+    /**
+     * Called once at the start of every get and put, before any other call for it.
+     */
+    default void recordOperation() {
+    }
+
+    /**
+     * A new entry has been added to the map.
+     */
+    void recordInsert(ForgettingMap.Node<K, V> node);
+
+    /**
+     * An entry has been fetched.
+     */
+    void recordAccess(ForgettingMap.Node<K, V> node);
+
+    /**
+     * An entry has left the map, expired or removed.
+     */
+    void recordRemoval(ForgettingMap.Node<K, V> node);
+
+    /**
+     * A victim has been evicted, the last call after selecting it, unlike a victim kept and later removed.
+     */
+    default void recordEviction(ForgettingMap.Node<K, V> node) {
+        recordRemoval(node);
+    }
+
+    /**
+     * The map has swapped an entry's node for a new one with the same key and value, e.g. one that can expire.  The
+     * replacement takes the node's place, and anything the policy knows of it.
+     */
+    default void recordReplacement(ForgettingMap.Node<K, V> node, ForgettingMap.Node<K, V> replacement) {
+        node.queue.replace(node, replacement);
+    }
+
+    /**
+     * The map either removes the victim before asking again, or keeps it, e.g. when TinyLFU admission turns away the
+     * new key.
+     * @return the entry to evict next, null if the map is empty
+     */
+    ForgettingMap.Node<K, V> selectVictim();
+}
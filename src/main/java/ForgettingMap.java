@@ -1,33 +1,155 @@
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Builder;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 /**
  * Notes :
  * 1. Keeping to semantics of Java Map/AbstractMap with intent to extend AbstractMap, but extra effort
- * 2. Worst-case O(1) get and O(n) put, with O(1) put if under capacity or lowest is known.  Preferred to maintaining
- * TreeSet with O(log n) for get and put.
- * 3. Has edge-case on a tie-breaker, if most recently added key has not been fetched, it will be preferred for eviction.
- * 4. NOT thread-safe as-is, intent to extend AbstractMap and wrap with Collections.synchronizedMap, or make get and put synchronized
+ * 2. O(1) get and O(1) put.  Which entry is dropped at capacity is decided by an EvictionPolicy, told of every entry
+ * added, fetched and removed.  By default LfuPolicy, least fetched first: entries are held in frequency buckets, so a
+ * get moves an entry to the adjacent bucket and the victim is always found in the lowest bucket.  The tie-breaking
+ * comparator is only applied within the lowest bucket, so eviction is O(1) unless several entries share the lowest
+ * count, when it is O(size of that bucket).  The comparator is handed the map's nodes as entries, so a tie-break
+ * allocates nothing.  LRU, CLOCK and ARC may be configured instead.
+ * 3. With a tie-breaking comparator, has edge-case on a tie-breaker, if most recently added key has not been fetched, it
+ * will be preferred for eviction.  Without one, ties are broken oldest first, by when each entry was added or last
+ * fetched, and eviction is always O(1), with no edge-case for new keys.
+ * 4. NOT thread-safe, see ConcurrentForgettingMap for a lock-striped version that scales across cores
+ * 5. Optional TinyLFU admission, every get and put is recorded in a FrequencySketch, and at capacity a new key is only
+ * added if its estimated historic frequency beats that of the entry that would be evicted for it.  Otherwise the put
+ * is dropped and the map is unchanged, so a scan of one-hit wonders cannot flush established entries.
+ * 6. Optional aging of the default policy, every agingPeriod gets and puts all fetch counts are halved so that entries
+ * popular long ago become evictable, and optional ghost history, a key put again soon after it was evicted resumes
+ * from its old count rather than zero, so it is not the next victim, see LfuPolicy.  Ghost history needs aging, as
+ * without it a count once high would be restored undiminished however long ago the key was popular.
+ * 7. Entries are held in an open-addressing NodeTable (linear probing, backward-shift deletion) of the nodes themselves,
+ * so an association costs one Node plus its table slots rather than a Node, a HashMap.Node and a wrapper, and probing
+ * compares cached hashes held in an int array before touching any node.
+ * 8. Optional stats, see StatsCounter.
+ * 9. Optional weigher, the map is then bounded by the total weight of its entries rather than their number, and a put
+ * evicts until the new one fits.  Without a weigher every entry weighs 1 and the bound is the
+ * capacity, so both modes share one eviction path.  An entry heavier than the maximum weight is never added.
+ * 10. Optional expiry, after a fixed time since the entry was written (per map, or per entry on put) and/or since it
+ * was last fetched.  Deadlines are kept in a TimerWheel, advanced on every get and put, which reclaims entries as soon
+ * as they are due in O(1) amortised each, so a put at capacity takes the space of expired entries before evicting a
+ * live one.  get also checks the deadline, so it never returns an expired value.  Maps that never expire anything do
+ * not read the Ticker, and their entries carry no deadlines or wheel links, only a map with a TimerWheel creates
+ * ExpiringNodes.  An entry added before the first put with a time to live is swapped for one when it needs a deadline,
+ * keeping its place and count in the eviction policy.
+ * 11. computeIfAbsent looks the key up once, and on a miss loads and inserts through the same eviction path as put,
+ * without hashing the key again.
+ * 12. putAll makes one eviction pass for the whole batch, evicting enough entries for every new key
+ * before adding them, rather than deciding victims one put at a time.  Batch keys therefore never evict each other,
+ * unless the batch alone is over capacity, when its last entries are kept.  With TinyLFU admission each key must be
+ * judged against its own victim, so the batch is put one at a time.
+ * 13. Optional AccessRecorder, samples gets and puts to a trace file.  Without one the cost is a null check.
+ * 14. Optional MissRatioCurve, estimates from the gets served the hit ratio the map would have at other capacities.
+ * 15. setMaximumSize changes the bound live, keeping every entry and its count.  Growing takes effect at once, and the
+ * table grows as entries arrive.  Shrinking lowers the bound a few evictions at a time, at the start of each following
+ * get and put, so there is no pause to evict the difference, and until the shrink completes a put at the bound still
+ * evicts one for one.  Policies and sketches sized from the capacity at construction keep that sizing.
  */
 public class ForgettingMap<K, V> {
 
-    private final HashMap<K, AccessCountingWrapper<V>> wrappedMap;
-    private final Comparator<Map.Entry<K, V>> tieBreakingComparator;
-    private final int maxCapacity;
-    private K currentLowest;
+    private static final int SHRINK_BATCH = 16;
+
+    private final NodeTable<K, V> table;
+    // the maximum number of entries, unless there is a weigher
+    private long maximumWeight;
+    // what puts evict down to, above maximumWeight while a shrink is in progress
+    private long evictionBound;
+    private final Weigher<? super K, ? super V> weigher;
+    private long totalWeight;
+    private final FrequencySketch<K> sketch;
+    private final StatsCounter statsCounter;
+    private final EvictionPolicy<K, V> evictionPolicy;
+    private BiConsumer<? super K, ? super V> evictionListener = (key, value) -> { };
+    private final Ticker ticker;
+    private final long timeOrigin;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    // null until something can expire
+    private TimerWheel<K, V> timerWheel;
+    private ToLongFunction<? super K> accessTimeSource;
+    private final AccessRecorder accessRecorder;
+    private final MissRatioCurve missRatioCurve;
+
+    /**
+     * Ties between least fetched keys are broken oldest first, by when they were added or last fetched.
+     * @see AbstractMap
+     * @param capacity - maximum size of the map before least fetched are dropped
+     */
+    public ForgettingMap(int capacity) {
+        this(capacity, null);
+    }
 
     /**
      * @see AbstractMap
-     * @param capacity - maximum size of the map before least fetched are dropped.  Should be multiple of 2 to as this
-     *                 value also configures the underlying hashmap capacity
-     * @param tieBreakingComparator - applied if there's more than one key with the least number of fetches, and those keys have been fetched at least once
+     * @param capacity - maximum size of the map before least fetched are dropped, also sizes the underlying table
+     * @param tieBreakingComparator - applied if there's more than one key with the least number of fetches, and those keys have been fetched at least once.
+     *                              Entries are read-only views of the map's own nodes, so must not be retained, e.g. Map.Entry.comparingByKey()
      */
     public ForgettingMap(int capacity, Comparator<Map.Entry<K, V>> tieBreakingComparator) {
-        this.maxCapacity = capacity;
-        this.wrappedMap = new HashMap<>(capacity, 1);
-        this.tieBreakingComparator = tieBreakingComparator;
+        this(capacity, tieBreakingComparator, false, 0, null, null, 0, null, null, null, null, null, 0, null);
+    }
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped, or with a weigher the expected size
+     * @param tieBreakingComparator - applied if there's more than one key with the least number of fetches, and those keys have been fetched at least once,
+     *                              null to break ties oldest first
+     * @param tinyLfuAdmission - if true, at capacity a new key is only added if it has been requested more often than the eviction victim
+     * @param agingPeriod - number of gets and puts between halving every fetch count, 0 to never age
+     * @param statsCounter - records hits, misses, puts and evictions, null for no stats
+     * @param weigher - if set, the map is bounded by the total weight of its entries rather than their number
+     * @param maximumWeight - with a weigher, the total weight above which least fetched are dropped
+     * @param expireAfterWrite - entries expire this long after they were put, null to not expire on age
+     * @param expireAfterAccess - entries expire this long after they were put or last fetched, null to not expire when idle
+     * @param ticker - time source for expiry, null for System.nanoTime
+     * @param accessRecorder - samples gets and puts to a trace file, null to record nothing
+     * @param evictionPolicy - decides which entry is dropped at capacity, null for least fetched, configured by
+     *                       tieBreakingComparator, agingPeriod and ghostHistory, which cannot be combined with another policy
+     * @param ghostHistory - number of evicted keys whose fetch counts are remembered and restored if they are put
+     *                     again, 0 to start every new key from zero, needs an agingPeriod
+     * @param missRatioCurve - measures the gets to estimate hit ratios at other capacities, null to measure nothing
+     * @see #ForgettingMap(int, Comparator)
+     */
+    @Builder
+    private ForgettingMap(int capacity, Comparator<Map.Entry<K, V>> tieBreakingComparator, boolean tinyLfuAdmission,
+                          int agingPeriod, StatsCounter statsCounter, Weigher<? super K, ? super V> weigher,
+                          long maximumWeight, Duration expireAfterWrite, Duration expireAfterAccess, Ticker ticker,
+                          AccessRecorder accessRecorder, EvictionPolicy<K, V> evictionPolicy, int ghostHistory,
+                          MissRatioCurve missRatioCurve) {
+        if (weigher != null && maximumWeight <= 0) {
+            throw new IllegalArgumentException("a weigher needs a positive maximumWeight");
+        }
+        if (evictionPolicy != null && (tieBreakingComparator != null || agingPeriod > 0 || ghostHistory > 0)) {
+            throw new IllegalArgumentException(
+                    "tieBreakingComparator, agingPeriod and ghostHistory only apply to the default policy");
+        }
+        if (ghostHistory > 0 && agingPeriod <= 0) {
+            throw new IllegalArgumentException("ghostHistory needs a positive agingPeriod, or restored counts never decay");
+        }
+        this.expireAfterWriteNanos = expireAfterWrite == null ? 0 : toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = expireAfterAccess == null ? 0 : toNanos(expireAfterAccess);
+        this.ticker = ticker == null ? Ticker.system() : ticker;
+        this.timeOrigin = this.ticker.read();
+        if (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0) {
+            this.timerWheel = new TimerWheel<>(0, this::onTimer);
+        }
+        this.weigher = weigher == null ? (key, value) -> 1 : weigher;
+        this.maximumWeight = weigher == null ? capacity : maximumWeight;
+        this.evictionBound = this.maximumWeight;
+        this.table = new NodeTable<>(capacity);
+        this.sketch = tinyLfuAdmission ? new FrequencySketch<>(capacity) : null;
+        this.statsCounter = statsCounter == null ? StatsCounter.disabled() : statsCounter;
+        this.evictionPolicy = evictionPolicy != null ? evictionPolicy
+                : new LfuPolicy<>(tieBreakingComparator, agingPeriod, this.statsCounter, ghostHistory);
+        this.accessRecorder = accessRecorder;
+        this.missRatioCurve = missRatioCurve;
     }
 
 
@@ -35,76 +157,729 @@ public class ForgettingMap<K, V> {
      * @see AbstractMap#get(Object)
      */
     public V get(K key) {
-        var wrapper = wrappedMap.get(key);
-        if (key.equals(currentLowest)) {
-            invalidateLowest();
+        var node = access(key, NodeTable.hash(key));
+        if (accessRecorder != null) {
+            accessRecorder.recordGet(key, node != null);
+        }
+        if (missRatioCurve != null) {
+            missRatioCurve.record(key);
         }
-        return wrapper == null ? null : wrapper.incrementAndGet();
+        if (node == null) {
+            statsCounter.recordMiss();
+            return null;
+        }
+        statsCounter.recordHit();
+        return node.value;
     }
 
     /**
      * @see AbstractMap#put(Object, Object)
      */
     public V put(K key, V value) {
+        return put(key, value, null);
+    }
 
-        if (wrappedMap.size() >= maxCapacity && !wrappedMap.containsKey(key)) {
-            removeLeastAccessedKey();
-            currentLowest = key;
-        }
+    /**
+     * @param timeToLive - how long after this put the entry expires, in place of expireAfterWrite; it may expire
+     *                   sooner if expireAfterAccess is set and it is not fetched.  Null for the map's default
+     * @see AbstractMap#put(Object, Object)
+     */
+    public V put(K key, V value, Duration timeToLive) {
 
-        var wrapper =
-                wrappedMap.putIfAbsent(key, new AccessCountingWrapper<V>(value, 0));
+        long timeToLiveNanos = expireAfterWriteNanos;
+        if (timeToLive != null) {
+            timeToLiveNanos = toNanos(timeToLive);
+            if (timerWheel == null) {
+                timerWheel = new TimerWheel<>(currentTime(), this::onTimer);
+            }
+        }
+        long now = advanceTime();
+        shrinkStep();
+        evictionPolicy.recordOperation();
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        if (accessRecorder != null) {
+            accessRecorder.recordPut(key);
+        }
 
-        if (wrapper != null) {
-            V previousValue = wrapper.getValue();
-            wrapper.setValue(value);
+        int weight = weigh(key, value);
+        int hash = NodeTable.hash(key);
+        var existing = table.get(key, hash);
+        if (existing != null && isExpired(existing, now)) {
+            expire(existing);
+            existing = null;
+        }
+        if (existing != null) {
+            if (timerWheel != null && !(existing instanceof ExpiringNode)) {
+                existing = toExpiring(existing);
+            }
+            V previousValue = existing.value;
+            existing.value = value;
+            totalWeight += weight - existing.weight;
+            existing.weight = weight;
+            scheduleExpiry(existing, now, timeToLiveNanos);
+            statsCounter.recordReplacement();
+            evictUntilFits(0);
             return previousValue;
-        } else {
+        }
+
+        insert(key, hash, value, weight, timeToLiveNanos, now);
+        return null;
+    }
+
+    /**
+     * Fetches each key, as get would.
+     * @param results - receives the value of each key present, may be reused between calls
+     * @return results
+     */
+    public Map<K, V> getAll(Iterable<? extends K> keys, Map<K, V> results) {
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                results.put(key, value);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Puts every association, with a single eviction pass for all of the new keys.
+     * @see Map#putAll(Map)
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        if (sketch != null) {
+            entries.forEach(this::put);
+            return;
+        }
+        long now = advanceTime();
+        shrinkStep();
+        var added = new ArrayDeque<Node<K, V>>(entries.size());
+        long incomingWeight = 0;
+        for (var entry : entries.entrySet()) {
+            evictionPolicy.recordOperation();
+            K key = entry.getKey();
+            V value = entry.getValue();
+            if (accessRecorder != null) {
+                accessRecorder.recordPut(key);
+            }
+            int weight = weigh(key, value);
+            int hash = NodeTable.hash(key);
+            var existing = table.get(key, hash);
+            if (existing != null && isExpired(existing, now)) {
+                expire(existing);
+                existing = null;
+            }
+            if (existing != null) {
+                existing.value = value;
+                totalWeight += weight - existing.weight;
+                existing.weight = weight;
+                scheduleExpiry(existing, now, expireAfterWriteNanos);
+                statsCounter.recordReplacement();
+            } else if (weight <= maximumWeight) {
+                var node = newNode(key, hash, value);
+                node.weight = weight;
+                added.addLast(node);
+                incomingWeight += weight;
+                while (incomingWeight > maximumWeight) {
+                    // the batch alone is over capacity, as sequential puts would, keep the latest
+                    incomingWeight -= added.removeFirst().weight;
+                }
+            }
+        }
+
+        evictUntilFits(incomingWeight);
+        for (var node : added) {
+            totalWeight += node.weight;
+            table.insert(node);
+            evictionPolicy.recordInsert(node);
+            scheduleExpiry(node, now, expireAfterWriteNanos);
+            statsCounter.recordPut();
+        }
+    }
+
+    /**
+     * If the key is absent (or expired), loads its value with the mapping function and adds it as put would.  The
+     * lookup counts as a fetch, and as a hit or a miss.  The mapping function must not modify this map.
+     * @param mappingFunction - computes the value for a missing key, null to add nothing
+     * @return the current or loaded value, null if absent and the function returned null
+     * @see Map#computeIfAbsent(Object, Function)
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int hash = NodeTable.hash(key);
+        var node = access(key, hash);
+        if (accessRecorder != null) {
+            accessRecorder.recordGet(key, node != null);
+        }
+        if (missRatioCurve != null) {
+            missRatioCurve.record(key);
+        }
+        if (node != null) {
+            statsCounter.recordHit();
+            return node.value;
+        }
+        statsCounter.recordMiss();
+        V value = mappingFunction.apply(key);
+        if (value != null) {
+            // the load may have taken a while, so expiry counts from now
+            insert(key, hash, value, weigh(key, value), expireAfterWriteNanos, advanceTime());
+        }
+        return value;
+    }
+
+    /**
+     * Adds an association for a key known to be absent, evicting to make space, unless it is too heavy to ever fit or
+     * admission rejects it.
+     */
+    private void insert(K key, int hash, V value, int weight, long timeToLiveNanos, long now) {
+        if (weight > maximumWeight) {
+            // could never fit, so do not flush the map trying
+            return;
+        }
+
+        if (exceedsCapacity(weight)) {
+            var victim = evictionPolicy.selectVictim();
+            if (victim != null && sketch != null && sketch.frequency(key) <= sketch.frequency(victim.key)) {
+                return;
+            }
+            if (victim != null) {
+                evict(victim);
+            }
+            evictUntilFits(weight);
+        }
+
+        var node = newNode(key, hash, value);
+        node.weight = weight;
+        totalWeight += weight;
+        table.insert(node);
+        evictionPolicy.recordInsert(node);
+        scheduleExpiry(node, now, timeToLiveNanos);
+        statsCounter.recordPut();
+    }
+
+    /**
+     * @return the previous value, null if the key was absent
+     * @see AbstractMap#remove(Object)
+     */
+    public V remove(K key) {
+        var node = liveNode(key);
+        if (node == null) {
             return null;
         }
+        removeNode(node);
+        return node.value;
+    }
+
+    /**
+     * Removes the key only if it is currently associated with the value.
+     * @return true if it was removed
+     * @see Map#remove(Object, Object)
+     */
+    public boolean remove(K key, V value) {
+        var node = liveNode(key);
+        if (node == null || !Objects.equals(node.value, value)) {
+            return false;
+        }
+        removeNode(node);
+        return true;
     }
 
     public int size() {
-        return wrappedMap.size();
+        return table.size();
+    }
+
+    /**
+     * Changes the bound without rebuilding the map.  A lower bound is reached over the following gets and puts, a few
+     * evictions at a time, and meanwhile the map never grows past its current weight.
+     * @param maximumSize - maximum number of entries, or with a weigher the maximum total weight
+     */
+    public void setMaximumSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative, was " + maximumSize);
+        }
+        maximumWeight = maximumSize;
+        evictionBound = Math.max(maximumSize, Math.min(evictionBound, totalWeight));
+    }
+
+    /**
+     * @return the bound last set, which the map may still be shrinking towards
+     */
+    public long maximumSize() {
+        return maximumWeight;
+    }
+
+    /**
+     * @return total weight of the entries, the same as size() if there is no weigher
+     */
+    public long weight() {
+        return totalWeight;
+    }
+
+    /**
+     * Does not count as a fetch, but does expire the entry if its time is up.
+     * @see AbstractMap#containsKey(Object)
+     */
+    public boolean containsKey(K key) {
+        return liveNode(key) != null;
+    }
+
+    /**
+     * @return counts recorded so far by this map's StatsCounter, all zero if it has none
+     */
+    public ForgettingMapStats stats() {
+        return statsCounter.snapshot();
     }
 
-    private void invalidateLowest() {
-        currentLowest = null;
+    StatsCounter statsCounter() {
+        return statsCounter;
     }
 
-    private void removeLeastAccessedKey() {
-        if (currentLowest == null) {
-            wrappedMap.entrySet()
-                    .stream()
-                    .min(comparator()) //assuming here that min is O(n)
-                    .map(Map.Entry::getKey)
-                    .map(k -> wrappedMap.remove(k));
-        } else {
-            wrappedMap.remove(currentLowest);
-            invalidateLowest();
+    /**
+     * @return the map's recorder, null if it has none
+     */
+    AccessRecorder accessRecorder() {
+        return accessRecorder;
+    }
+
+    /**
+     * @return the map's curve, null if it has none
+     */
+    MissRatioCurve missRatioCurve() {
+        return missRatioCurve;
+    }
+
+    /**
+     * Thread-safe, reads only the ticker.
+     * @return nanoseconds since the map was created, the clock that expiry deadlines are set against
+     */
+    long currentTime() {
+        return ticker.read() - timeOrigin;
+    }
+
+    /**
+     * @return when the key's entry expires regardless of fetches, on the currentTime() clock, Long.MAX_VALUE if it
+     * never does or is absent
+     */
+    long writeExpirationTime(K key) {
+        var node = table.get(key, NodeTable.hash(key));
+        return node instanceof ExpiringNode ? ((ExpiringNode<K, V>) node).writeExpiresAt : Long.MAX_VALUE;
+    }
+
+    long expireAfterAccessNanos() {
+        return expireAfterAccessNanos;
+    }
+
+    /**
+     * Fetches recorded outside the map, e.g. lock-free reads not yet replayed, may have kept an idle entry alive.  The
+     * source is consulted before an entry expires for being idle, and returns when the key was last fetched on the
+     * currentTime() clock, or Long.MIN_VALUE if it does not know.
+     */
+    void setAccessTimeSource(ToLongFunction<? super K> accessTimeSource) {
+        this.accessTimeSource = accessTimeSource;
+    }
+
+    /**
+     * Counts a fetch of the key, as get would, but without recording a hit or miss.  Used to replay fetches that were
+     * already recorded elsewhere.
+     * @return the value, null if absent
+     */
+    V recordAccess(K key) {
+        var node = access(key, NodeTable.hash(key));
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Does not count as a fetch, nor as a hit or a miss.
+     * @return the value, null if absent or expired
+     */
+    V peek(K key) {
+        var node = liveNode(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Notified of each association dropped to make space or expired, after it has been removed.
+     */
+    void setEvictionListener(BiConsumer<? super K, ? super V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    private Node<K, V> access(K key, int hash) {
+        long now = advanceTime();
+        shrinkStep();
+        evictionPolicy.recordOperation();
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        var node = table.get(key, hash);
+        if (node != null) {
+            if (isExpired(node, now)) {
+                expire(node);
+                return null;
+            }
+            evictionPolicy.recordAccess(node);
+            if (expireAfterAccessNanos > 0) {
+                var expiring = (ExpiringNode<K, V>) node;
+                expiring.expiresAt = Math.min(expiring.writeExpiresAt, deadline(now, expireAfterAccessNanos));
+                timerWheel.reschedule(expiring);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return the current time, after expiring whatever the timer wheel finds due, or 0 if nothing can expire
+     */
+    private long advanceTime() {
+        if (timerWheel == null) {
+            return 0;
+        }
+        long now = currentTime();
+        timerWheel.advance(now);
+        return now;
+    }
+
+    /**
+     * @return the key's node without counting a fetch, null if absent or expired
+     */
+    private Node<K, V> liveNode(K key) {
+        long now = advanceTime();
+        var node = table.get(key, NodeTable.hash(key));
+        if (node != null && isExpired(node, now)) {
+            expire(node);
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Due nodes found by the timer wheel, already unlinked from it.
+     */
+    private void onTimer(ExpiringNode<K, V> node) {
+        if (isExpired(node, timerWheel.time())) {
+            expire(node);
+        }
+    }
+
+    /**
+     * An idle deadline that has passed is first checked against the access time source, and pushed back, rescheduling
+     * the node, if the entry was fetched since.
+     */
+    private boolean isExpired(Node<K, V> node, long now) {
+        if (!(node instanceof ExpiringNode)) {
+            return false;
+        }
+        var expiring = (ExpiringNode<K, V>) node;
+        if (expiring.expiresAt > now) {
+            return false;
+        }
+        if (accessTimeSource == null || expiring.writeExpiresAt <= now) {
+            return true;
+        }
+        long accessedAt = accessTimeSource.applyAsLong(node.key);
+        if (accessedAt == Long.MIN_VALUE || deadline(accessedAt, expireAfterAccessNanos) <= now) {
+            return true;
+        }
+        expiring.expiresAt = Math.min(expiring.writeExpiresAt, deadline(accessedAt, expireAfterAccessNanos));
+        timerWheel.reschedule(expiring);
+        return false;
+    }
+
+    /**
+     * @param node - an ExpiringNode if the map has a timer wheel
+     */
+    private void scheduleExpiry(Node<K, V> node, long now, long timeToLiveNanos) {
+        if (timerWheel == null) {
+            return;
+        }
+        var expiring = (ExpiringNode<K, V>) node;
+        expiring.writeExpiresAt = timeToLiveNanos > 0 ? deadline(now, timeToLiveNanos) : Long.MAX_VALUE;
+        expiring.expiresAt = expireAfterAccessNanos > 0
+                ? Math.min(expiring.writeExpiresAt, deadline(now, expireAfterAccessNanos))
+                : expiring.writeExpiresAt;
+        timerWheel.cancel(expiring);
+        if (expiring.expiresAt != Long.MAX_VALUE) {
+            timerWheel.schedule(expiring);
+        }
+    }
+
+    private Node<K, V> newNode(K key, int hash, V value) {
+        return timerWheel == null ? new Node<>(key, hash, value) : new ExpiringNode<>(key, hash, value);
+    }
+
+    /**
+     * Swaps a node added before the map had a timer wheel, when the first put with a time to live created it, for one
+     * that can expire.  It keeps its place in the eviction policy, and its fetch count.
+     */
+    private Node<K, V> toExpiring(Node<K, V> node) {
+        Node<K, V> expiring = new ExpiringNode<>(node.key, node.hash, node.value);
+        expiring.weight = node.weight;
+        table.replace(node, expiring);
+        evictionPolicy.recordReplacement(node, expiring);
+        return expiring;
+    }
+
+    private static long deadline(long now, long nanos) {
+        long deadline = now + nanos;
+        return deadline < now ? Long.MAX_VALUE : deadline;
+    }
+
+    private static long toNanos(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("expiry must be positive, was " + duration);
+        }
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private int weigh(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight " + weight + " for " + key);
+        }
+        return weight;
+    }
+
+    private boolean exceedsCapacity(long incomingWeight) {
+        return totalWeight + incomingWeight > evictionBound;
+    }
+
+    /**
+     * Evicts a batch towards a lowered maximum, and lowers the bound puts evict down to as far as it got.  Runs before
+     * the operation is recorded with the policy, so the evictions are not taken as the operation's own.
+     */
+    private void shrinkStep() {
+        if (evictionBound == maximumWeight) {
+            return;
+        }
+        for (int i = 0; i < SHRINK_BATCH && totalWeight > maximumWeight; i++) {
+            var victim = evictionPolicy.selectVictim();
+            if (victim == null) {
+                break;
+            }
+            evict(victim);
+        }
+        evictionBound = Math.max(maximumWeight, totalWeight);
+    }
+
+    /**
+     * Evicts until the incoming weight fits, or the map is empty.
+     */
+    private void evictUntilFits(long incomingWeight) {
+        while (exceedsCapacity(incomingWeight)) {
+            var victim = evictionPolicy.selectVictim();
+            if (victim == null) {
+                return;
+            }
+            evict(victim);
         }
     }
 
-    private Comparator<Map.Entry<K, AccessCountingWrapper<V>>> comparator() {
-        return Comparator.<Map.Entry<K, AccessCountingWrapper<V>>>comparingInt(o -> o.getValue().getCount())
-                .thenComparing((o1, o2) -> tieBreakingComparator.compare(entry(o1), entry(o2)));
+    private void evict(Node<K, V> victim) {
+        detach(victim);
+        evictionPolicy.recordEviction(victim);
+        statsCounter.recordEviction();
+        evictionListener.accept(victim.key, victim.value);
     }
 
-    private AbstractMap.SimpleEntry<K, V> entry(Map.Entry<K, AccessCountingWrapper<V>> o1) {
-        //note, it is not efficient to construct temporary objects in the context of a sort, needs rework
-        return new AbstractMap.SimpleEntry<K, V>(o1.getKey(), o1.getValue().getValue());
+    private void expire(Node<K, V> node) {
+        removeNode(node);
+        statsCounter.recordExpiration();
+        evictionListener.accept(node.key, node.value);
     }
 
-    @AllArgsConstructor
-    @Data
-    private static class AccessCountingWrapper<V> {
+    private void removeNode(Node<K, V> node) {
+        detach(node);
+        evictionPolicy.recordRemoval(node);
+    }
+
+    private void detach(Node<K, V> node) {
+        totalWeight -= node.weight;
+        table.remove(node);
+        if (node instanceof ExpiringNode) {
+            timerWheel.cancel((ExpiringNode<K, V>) node);
+        }
+    }
+
+    /**
+     * An association, linked into a NodeList of its eviction policy.  Passed directly to the tie-breaking comparator as
+     * a read-only entry.
+     */
+    static class Node<K, V> implements Map.Entry<K, V> {
+        private final K key;
+        private final int hash;
         private V value;
-        private int count = 0;
+        private int weight;
+        // owned by the eviction policy
+        NodeList<K, V> queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+        boolean referenced;
 
-        V incrementAndGet() {
-            count++;
+        Node(K key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
             return value;
         }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("entries passed to the tie-breaking comparator are read-only");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            var entry = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
     }
-}
 
+    /**
+     * Open-addressing hash table of nodes, keyed by each node's key.  Cached hashes sit in a parallel int array, so a
+     * probe only dereferences a node whose hash matches.  Removal shifts later entries of the probe run back into the
+     * gap, so no tombstones are needed and lookups never degrade as entries churn.
+     */
+    /**
+     * A node that can expire, also linked into a TimerWheel bucket.  Only created once the map has a timer wheel, so
+     * maps that never expire anything do not carry the deadlines and links on every entry.
+     */
+    static final class ExpiringNode<K, V> extends Node<K, V> {
+        // deadlines on the map's currentTime() clock, expiresAt is the earlier of the write and idle deadlines
+        long expiresAt = Long.MAX_VALUE;
+        private long writeExpiresAt = Long.MAX_VALUE;
+        ExpiringNode<K, V> timerPrev;
+        ExpiringNode<K, V> timerNext;
+
+        ExpiringNode(K key, int hash, V value) {
+            super(key, hash, value);
+        }
+    }
+
+    private static class NodeTable<K, V> {
+        private static final float LOAD_FACTOR = 0.75f;
+
+        private int[] hashes;
+        private Node<K, V>[] nodes;
+        private int mask;
+        private int threshold;
+        private int size;
+
+        NodeTable(int expectedSize) {
+            int length = 2;
+            while (length * LOAD_FACTOR < expectedSize) {
+                length <<= 1;
+            }
+            allocate(length);
+        }
+
+        static int hash(Object key) {
+            int h = key.hashCode() * 0x85ebca6b;
+            return h ^ (h >>> 16);
+        }
+
+        int size() {
+            return size;
+        }
+
+        Node<K, V> get(K key, int hash) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                var node = nodes[i];
+                if (node == null) {
+                    return null;
+                }
+                if (hashes[i] == hash && (node.key == key || key.equals(node.key))) {
+                    return node;
+                }
+            }
+        }
+
+        /**
+         * @param replacement - has the node's key, and takes its slot
+         */
+        void replace(Node<K, V> node, Node<K, V> replacement) {
+            int i = node.hash & mask;
+            while (nodes[i] != node) {
+                i = (i + 1) & mask;
+            }
+            nodes[i] = replacement;
+        }
+
+        /**
+         * Node's key must not already be present.
+         */
+        void insert(Node<K, V> node) {
+            if (size >= threshold) {
+                resize();
+            }
+            place(node);
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            int gap = node.hash & mask;
+            while (nodes[gap] != node) {
+                gap = (gap + 1) & mask;
+            }
+            for (int i = (gap + 1) & mask; nodes[i] != null; i = (i + 1) & mask) {
+                int home = hashes[i] & mask;
+                // move back if the gap lies cyclically between this entry's home slot and its current slot
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    nodes[gap] = nodes[i];
+                    hashes[gap] = hashes[i];
+                    gap = i;
+                }
+            }
+            nodes[gap] = null;
+            size--;
+        }
+
+        private void place(Node<K, V> node) {
+            int i = node.hash & mask;
+            while (nodes[i] != null) {
+                i = (i + 1) & mask;
+            }
+            nodes[i] = node;
+            hashes[i] = node.hash;
+        }
+
+        private void resize() {
+            var old = nodes;
+            allocate(old.length << 1);
+            for (var node : old) {
+                if (node != null) {
+                    place(node);
+                }
+            }
+        }
+
+        private void allocate(int length) {
+            hashes = new int[length];
+            @SuppressWarnings("unchecked")
+            var table = (Node<K, V>[]) new Node<?, ?>[length];
+            nodes = table;
+            mask = length - 1;
+            threshold = (int) (length * LOAD_FACTOR);
+        }
+    }
+}
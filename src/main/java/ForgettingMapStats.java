@@ -0,0 +1,41 @@
+import lombok.Value;
+
+/**
+ * Point in time counts recorded by a StatsCounter.
+ */
+@Value
+public class ForgettingMapStats {
+    long hitCount;
+    long missCount;
+    long putCount;
+    long replacementCount;
+    long evictionCount;
+    long evictionScanCount;
+    long expirationCount;
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * @return fraction of gets that found a value, 1 if there have been no gets
+     */
+    public double hitRatio() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * @return counts accumulated since the earlier snapshot
+     */
+    public ForgettingMapStats minus(ForgettingMapStats earlier) {
+        return new ForgettingMapStats(
+                hitCount - earlier.hitCount,
+                missCount - earlier.missCount,
+                putCount - earlier.putCount,
+                replacementCount - earlier.replacementCount,
+                evictionCount - earlier.evictionCount,
+                evictionScanCount - earlier.evictionScanCount,
+                expirationCount - earlier.expirationCount);
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Notes :
+ * 1. Count-min sketch of 4-bit counters estimating how often each key has been seen, used by the TinyLFU admission
+ * filter to compare a new key with the eviction victim, including keys that are no longer (or never were) in the map.
+ * 2. Four counters per key, each selected by a differently seeded hash, sixteen counters packed into a long.  The
+ * estimate is the minimum of the four, so collisions can only over-estimate.
+ * 3. Counters saturate at 15.  After sampleSize increments every counter is halved, so the sketch reflects recent
+ * history and a key that was popular long ago does not keep beating new arrivals.
+ * 4. NOT thread-safe, owned by a single ForgettingMap.
+ */
+class FrequencySketch<K> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param capacity - expected number of distinct keys held, sizes the table at roughly 8 bytes per key
+     */
+    FrequencySketch(int capacity) {
+        int length = 1;
+        while (length < capacity) {
+            length <<= 1;
+        }
+        this.table = new long[length];
+        this.counterMask = (length << 4) - 1;
+        this.sampleSize = Math.max(10 * capacity, 10);
+    }
+
+    /**
+     * @return estimated number of increments for the key since it was last halved, between 0 and 15
+     */
+    int frequency(K key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counter(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    void increment(K key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i));
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private int counter(int index) {
+        return (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xfL);
+    }
+
+    private boolean incrementAt(int index) {
+        int shift = (index & 15) << 2;
+        long mask = 0xfL << shift;
+        int slot = index >>> 4;
+        if ((table[slot] & mask) != mask) {
+            table[slot] += 1L << shift;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
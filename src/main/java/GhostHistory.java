@@ -0,0 +1,67 @@
+/**
+ * Notes :
+ * 1. Fetch counts of recently evicted keys, so a key put again soon after eviction resumes from its old count rather
+ * than from zero, where it would often be the next victim.  The put that first added the key counts too, so a key
+ * evicted before it was ever fetched returns with a count of one, ahead of keys seen only once.
+ * 2. Direct-mapped by key hash, a fixed table of ints, so remembering and restoring are O(1) and allocate nothing.  A
+ * newer eviction overwrites an older one in the same slot, and keys with equal hashes share a count.
+ * 3. Each count is stored with the aging epoch it was evicted in, and halved for every aging pass since when restored,
+ * so history decays at the same rate as the counts still in the map.
+ * 4. NOT thread-safe, owned by a single LfuPolicy.
+ */
+class GhostHistory {
+
+    private final int[] hashes;
+    // restored count + 1, so 0 marks an empty slot
+    private final int[] counts;
+    private final int[] epochs;
+    private final int mask;
+
+    /**
+     * @param size - number of evicted keys remembered, rounded up to a power of two
+     */
+    GhostHistory(int size) {
+        int length = 1;
+        while (length < size) {
+            length <<= 1;
+        }
+        this.hashes = new int[length];
+        this.counts = new int[length];
+        this.epochs = new int[length];
+        this.mask = length - 1;
+    }
+
+    /**
+     * @param count - the key's fetch count when it was evicted
+     */
+    void remember(Object key, int count, int epoch) {
+        int hash = spread(key.hashCode());
+        int slot = hash & mask;
+        hashes[slot] = hash;
+        // count + 1 for the put, + 1 more to mark the slot used
+        counts[slot] = count + 2;
+        epochs[slot] = epoch;
+    }
+
+    /**
+     * Forgets the key once restored.
+     * @return the key's count when evicted plus one for its put, halved for each aging epoch since, 0 if it is not
+     * remembered
+     */
+    int restore(Object key, int epoch) {
+        int hash = spread(key.hashCode());
+        int slot = hash & mask;
+        if (counts[slot] == 0 || hashes[slot] != hash) {
+            return 0;
+        }
+        int count = counts[slot] - 1;
+        counts[slot] = 0;
+        int elapsed = epoch - epochs[slot];
+        return elapsed >= Integer.SIZE ? 0 : count >>> elapsed;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.Arrays;
+
+/**
+ * Notes :
+ * 1. The frequency buckets of ForgettingMap for entries identified by an int index rather than a node, so primitive
+ * maps keep their eviction order in int arrays with no per-entry objects, and nothing is allocated after construction.
+ * 2. Entries join the tail of their bucket, so lowest() is the least fetched entry, oldest first among ties, in O(1).
+ * 3. Buckets come from a fixed pool.  Every live bucket holds at least one entry, apart from the one created by an
+ * increment before the entry leaves its old bucket, so capacity + 1 buckets always suffice.
+ */
+class IndexedFrequencyList {
+
+    private static final int NONE = -1;
+
+    private final int[] entryBucket;
+    private final int[] entryPrev;
+    private final int[] entryNext;
+
+    private final int[] bucketCount;
+    private final int[] bucketHead;
+    private final int[] bucketTail;
+    private final int[] bucketPrev;
+    private final int[] bucketNext;
+    private final int[] freeBuckets;
+    private int freeBucketCount;
+    private int lowestBucket = NONE;
+
+    /**
+     * @param capacity - entries are indexed from 0 to capacity - 1
+     */
+    IndexedFrequencyList(int capacity) {
+        entryBucket = new int[capacity];
+        entryPrev = new int[capacity];
+        entryNext = new int[capacity];
+        int buckets = capacity + 1;
+        bucketCount = new int[buckets];
+        bucketHead = new int[buckets];
+        bucketTail = new int[buckets];
+        bucketPrev = new int[buckets];
+        bucketNext = new int[buckets];
+        freeBuckets = new int[buckets];
+        for (int i = 0; i < buckets; i++) {
+            freeBuckets[i] = buckets - 1 - i;
+        }
+        freeBucketCount = buckets;
+        Arrays.fill(entryBucket, NONE);
+    }
+
+    /**
+     * Adds the entry with no fetches.
+     */
+    void add(int entry) {
+        if (lowestBucket == NONE || bucketCount[lowestBucket] != 0) {
+            int bucket = allocateBucket(0);
+            bucketNext[bucket] = lowestBucket;
+            if (lowestBucket != NONE) {
+                bucketPrev[lowestBucket] = bucket;
+            }
+            lowestBucket = bucket;
+        }
+        append(lowestBucket, entry);
+    }
+
+    void increment(int entry) {
+        int bucket = entryBucket[entry];
+        int target = bucketNext[bucket];
+        if (target == NONE || bucketCount[target] != bucketCount[bucket] + 1) {
+            target = allocateBucket(bucketCount[bucket] + 1);
+            bucketPrev[target] = bucket;
+            bucketNext[target] = bucketNext[bucket];
+            if (bucketNext[bucket] != NONE) {
+                bucketPrev[bucketNext[bucket]] = target;
+            }
+            bucketNext[bucket] = target;
+        }
+        remove(entry);
+        append(target, entry);
+    }
+
+    void remove(int entry) {
+        int bucket = entryBucket[entry];
+        int prev = entryPrev[entry];
+        int next = entryNext[entry];
+        if (prev == NONE) {
+            bucketHead[bucket] = next;
+        } else {
+            entryNext[prev] = next;
+        }
+        if (next == NONE) {
+            bucketTail[bucket] = prev;
+        } else {
+            entryPrev[next] = prev;
+        }
+        entryBucket[entry] = NONE;
+        if (bucketHead[bucket] == NONE) {
+            releaseBucket(bucket);
+        }
+    }
+
+    /**
+     * @return the least fetched entry, oldest first among ties, or -1 if there are none
+     */
+    int lowest() {
+        return lowestBucket == NONE ? NONE : bucketHead[lowestBucket];
+    }
+
+    private void append(int bucket, int entry) {
+        int tail = bucketTail[bucket];
+        entryBucket[entry] = bucket;
+        entryPrev[entry] = tail;
+        entryNext[entry] = NONE;
+        if (tail == NONE) {
+            bucketHead[bucket] = entry;
+        } else {
+            entryNext[tail] = entry;
+        }
+        bucketTail[bucket] = entry;
+    }
+
+    private int allocateBucket(int count) {
+        int bucket = freeBuckets[--freeBucketCount];
+        bucketCount[bucket] = count;
+        bucketHead[bucket] = NONE;
+        bucketTail[bucket] = NONE;
+        bucketPrev[bucket] = NONE;
+        bucketNext[bucket] = NONE;
+        return bucket;
+    }
+
+    private void releaseBucket(int bucket) {
+        int prev = bucketPrev[bucket];
+        int next = bucketNext[bucket];
+        if (prev == NONE) {
+            lowestBucket = next;
+        } else {
+            bucketNext[prev] = next;
+        }
+        if (next != NONE) {
+            bucketPrev[next] = prev;
+        }
+        freeBuckets[freeBucketCount++] = bucket;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Notes :
+ * 1. ForgettingMap specialised for int keys.  Keys are held in primitive arrays, so get and put never box, and a
+ * lookup allocates nothing.
+ * 2. Entries are slots in parallel arrays sized once from capacity.  The slot of an evicted entry is reused for the
+ * key that displaced it, so the map never allocates after construction, and costs roughly 4 bytes for the key, a value
+ * reference and 16 bytes of eviction links per entry, against ForgettingMap's node, key object and table slots.
+ * 3. Least fetched eviction with ties broken oldest first, as ForgettingMap(int), see IndexedFrequencyList.
+ * 4. NOT thread-safe.
+ */
+public class IntForgettingMap<V> {
+
+    private final int maxCapacity;
+    private final IntKeyIndex index;
+    private final IndexedFrequencyList frequencies;
+    private final int[] keys;
+    private final Object[] values;
+    private int size;
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     */
+    public IntForgettingMap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.maxCapacity = capacity;
+        this.index = new IntKeyIndex(capacity);
+        this.frequencies = new IndexedFrequencyList(capacity);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * @see ForgettingMap#get(Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int entry = index.get(key);
+        if (entry < 0) {
+            return null;
+        }
+        frequencies.increment(entry);
+        return (V) values[entry];
+    }
+
+    /**
+     * @see ForgettingMap#put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int entry = index.get(key);
+        if (entry >= 0) {
+            var previousValue = (V) values[entry];
+            values[entry] = value;
+            return previousValue;
+        }
+        if (size >= maxCapacity) {
+            entry = frequencies.lowest();
+            frequencies.remove(entry);
+            index.remove(keys[entry]);
+        } else {
+            entry = size++;
+        }
+        keys[entry] = key;
+        values[entry] = value;
+        index.put(key, entry);
+        frequencies.add(entry);
+        return null;
+    }
+
+    /**
+     * Does not count as a fetch.
+     */
+    public boolean containsKey(int key) {
+        return index.get(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
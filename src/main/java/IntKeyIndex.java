@@ -0,0 +1,77 @@
+/**
+ * Notes :
+ * 1. Open-addressing map from int key to int entry index, for the primitive-keyed maps.  Keys sit in an int array and
+ * entries in a parallel int array, so a lookup reads no objects and allocates nothing.
+ * 2. Sized once for a maximum number of keys, at most 0.75 full.  Linear probing with backward-shift deletion, as in
+ * ForgettingMap's NodeTable.
+ */
+class IntKeyIndex {
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int ABSENT = -1;
+
+    private final int[] keys;
+    // entry index + 1, so that 0 marks an empty slot
+    private final int[] entries;
+    private final int mask;
+
+    IntKeyIndex(int maxKeys) {
+        int length = 2;
+        while (length * LOAD_FACTOR < maxKeys) {
+            length <<= 1;
+        }
+        keys = new int[length];
+        entries = new int[length];
+        mask = length - 1;
+    }
+
+    /**
+     * @return entry index for the key, or -1 if absent
+     */
+    int get(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (entries[i] == 0) {
+                return ABSENT;
+            }
+            if (keys[i] == key) {
+                return entries[i] - 1;
+            }
+        }
+    }
+
+    /**
+     * Key must not already be present.
+     */
+    void put(int key, int entry) {
+        int i = slot(key);
+        while (entries[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        entries[i] = entry + 1;
+    }
+
+    void remove(int key) {
+        int gap = slot(key);
+        while (entries[gap] == 0 || keys[gap] != key) {
+            if (entries[gap] == 0) {
+                return;
+            }
+            gap = (gap + 1) & mask;
+        }
+        for (int i = (gap + 1) & mask; entries[i] != 0; i = (i + 1) & mask) {
+            int home = slot(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                entries[gap] = entries[i];
+                gap = i;
+            }
+        }
+        entries[gap] = 0;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,280 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Notes :
+ * 1. Least fetched first, ForgettingMap's default policy.  Entries are held in frequency buckets (a doubly linked list
+ * of buckets in ascending fetch count, each a NodeList of its entries), so a fetch moves an entry to the adjacent
+ * bucket and the victim is always in the lowest bucket.
+ * 2. Without a tie-breaking comparator, entries join the tail of their bucket when added or fetched, so the oldest of
+ * the least fetched is the head of the lowest bucket and selection is O(1).  After an aging merge (note 4) the order
+ * is oldest first within each of the merged runs.
+ * 3. With a tie-breaking comparator, it is applied across the lowest bucket, O(size of that bucket).  When several
+ * victims are taken in a row, e.g. for a heavy entry, the bucket is sorted once rather than scanned for each, into a
+ * list kept for reuse, so it only allocates when a bucket larger than any before is sorted.  Has an
+ * edge-case, a key added by a put that evicted is preferred for eviction until it is fetched.
+ * 4. Optional aging, every agingPeriod gets and puts all fetch counts are halved so that entries popular long ago
+ * become evictable.  Counts are held per bucket, so halving is a sweep over the buckets rather than the entries, and
+ * the sweep is itself spread over the following operations a few buckets at a time.  Buckets whose halved counts
+ * collide are merged, and a fetch racing the sweep may be halved twice or not at all, so aging is approximate.
+ * 5. Optional GhostHistory, the counts of evicted keys are remembered, and a key put again joins the bucket of its
+ * old count, decayed by aging since, rather than the lowest.  ForgettingMap only allows it with aging, as otherwise a
+ * restored count never decays.  The bucket is found by walking up from the lowest, at
+ * most a few buckets, as a restored count is usually near the bottom; past that it joins the bucket reached.
+ */
+class LfuPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private static final int AGING_BUDGET = 8;
+    private static final int RESTORE_WALK = 8;
+
+    private final Comparator<Map.Entry<K, V>> tieBreakingComparator;
+    private final int agingPeriod;
+    private final StatsCounter statsCounter;
+    private final GhostHistory ghostHistory;
+    private int operationsSinceAging;
+    private int agingEpoch;
+    private Bucket<K, V> agingCursor;
+    private Bucket<K, V> lowestBucket;
+    private ForgettingMap.Node<K, V> currentLowest;
+    // victim selection state, reset by every operation
+    private ForgettingMap.Node<K, V> selected;
+    private boolean victimRemoved;
+    // reused across evictions, holds entries only while tiesSorted
+    private final List<ForgettingMap.Node<K, V>> sortedTies = new ArrayList<>();
+    private boolean tiesSorted;
+    private int nextTie;
+
+    /**
+     * @param tieBreakingComparator - applied across the least fetched, null to break ties oldest first
+     * @param agingPeriod - number of gets and puts between halving every fetch count, 0 to never age
+     * @param statsCounter - records eviction scans
+     * @param ghostHistory - number of evicted keys whose counts are remembered, 0 for none
+     */
+    LfuPolicy(Comparator<Map.Entry<K, V>> tieBreakingComparator, int agingPeriod, StatsCounter statsCounter,
+              int ghostHistory) {
+        this.tieBreakingComparator = tieBreakingComparator;
+        this.agingPeriod = agingPeriod;
+        this.statsCounter = statsCounter;
+        this.ghostHistory = ghostHistory > 0 ? new GhostHistory(ghostHistory) : null;
+    }
+
+    @Override
+    public void recordOperation() {
+        selected = null;
+        victimRemoved = false;
+        discardTies();
+        if (agingPeriod <= 0) {
+            return;
+        }
+        if (++operationsSinceAging >= agingPeriod) {
+            operationsSinceAging = 0;
+            agingEpoch++;
+            agingCursor = lowestBucket;
+        }
+        if (agingCursor != null) {
+            ageBuckets();
+        }
+    }
+
+    @Override
+    public void recordInsert(ForgettingMap.Node<K, V> node) {
+        discardTies();
+        int count = ghostHistory == null ? 0 : ghostHistory.restore(node.getKey(), agingEpoch);
+        bucketFor(count).linkLast(node);
+        if (victimRemoved && tieBreakingComparator != null && node.queue == lowestBucket) {
+            currentLowest = node;
+        }
+        victimRemoved = false;
+    }
+
+    @Override
+    public void recordAccess(ForgettingMap.Node<K, V> node) {
+        discardTies();
+        if (node == currentLowest) {
+            currentLowest = null;
+        }
+        var bucket = bucketOf(node);
+        var target = bucket.next;
+        if (target == null || target.count != bucket.count + 1 || target == agingCursor) {
+            target = insertBucket(bucket, bucket.count + 1);
+        }
+        unlink(node);
+        target.linkLast(node);
+    }
+
+    @Override
+    public void recordRemoval(ForgettingMap.Node<K, V> node) {
+        if (node == currentLowest) {
+            currentLowest = null;
+        }
+        if (node == selected) {
+            selected = null;
+            victimRemoved = true;
+        } else {
+            discardTies();
+        }
+        unlink(node);
+    }
+
+    @Override
+    public void recordReplacement(ForgettingMap.Node<K, V> node, ForgettingMap.Node<K, V> replacement) {
+        discardTies();
+        node.queue.replace(node, replacement);
+        if (node == currentLowest) {
+            currentLowest = replacement;
+        }
+    }
+
+    @Override
+    public void recordEviction(ForgettingMap.Node<K, V> node) {
+        if (ghostHistory != null) {
+            ghostHistory.remember(node.getKey(), bucketOf(node).count, agingEpoch);
+        }
+        recordRemoval(node);
+    }
+
+    @Override
+    public ForgettingMap.Node<K, V> selectVictim() {
+        if (currentLowest != null) {
+            return selected = currentLowest;
+        }
+        if (tiesSorted && nextTie < sortedTies.size()) {
+            return selected = sortedTies.get(nextTie++);
+        }
+        if (lowestBucket == null) {
+            return null;
+        }
+        var candidate = lowestBucket.head;
+        if (tieBreakingComparator == null || candidate.next == null) {
+            return selected = candidate;
+        }
+        statsCounter.recordEvictionScan();
+        if (victimRemoved) {
+            // taking several victims, sort the ties once rather than scanning for each
+            sortedTies.clear();
+            for (var node = candidate; node != null; node = node.next) {
+                sortedTies.add(node);
+            }
+            sortedTies.sort(tieBreakingComparator);
+            tiesSorted = true;
+            nextTie = 1;
+            return selected = sortedTies.get(0);
+        }
+        for (var node = candidate.next; node != null; node = node.next) {
+            // nodes are their own entries, so comparing allocates nothing
+            if (tieBreakingComparator.compare(node, candidate) < 0) {
+                candidate = node;
+            }
+        }
+        return selected = candidate;
+    }
+
+    /**
+     * Empties the sorted ties, so the list does not hold on to evicted entries.
+     */
+    private void discardTies() {
+        if (tiesSorted) {
+            tiesSorted = false;
+            sortedTies.clear();
+        }
+    }
+
+    /**
+     * Halves the counts of a few buckets, working up from the lowest.  Buckets behind the cursor have been halved, so
+     * are still in ascending order, and are below every bucket from the cursor on.
+     */
+    private void ageBuckets() {
+        int budget = AGING_BUDGET;
+        while (agingCursor != null && budget > 0) {
+            var bucket = agingCursor;
+            int halved = bucket.count >>> 1;
+            var previous = bucket.prev;
+            if (previous == null || previous.count < halved) {
+                bucket.count = halved;
+                agingCursor = bucket.next;
+                budget--;
+            } else {
+                // the halved count is already taken, move entries across and drop the bucket once it is empty
+                while (bucket.head != null && budget > 0) {
+                    var node = bucket.head;
+                    unlink(node);
+                    previous.linkLast(node);
+                    budget--;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the bucket of the count, or of the highest count below it within a short walk up from the lowest
+     */
+    private Bucket<K, V> bucketFor(int count) {
+        if (lowestBucket == null || lowestBucket.count > count) {
+            return insertBucket(null, count);
+        }
+        var bucket = lowestBucket;
+        for (int i = 0; i < RESTORE_WALK && bucket.next != null && bucket.next.count <= count; i++) {
+            bucket = bucket.next;
+        }
+        if (bucket.count == count || (bucket.next != null && bucket.next.count <= count)) {
+            return bucket;
+        }
+        return insertBucket(bucket, count);
+    }
+
+    /**
+     * @param previous - the bucket to follow, null for a new lowest bucket
+     */
+    private Bucket<K, V> insertBucket(Bucket<K, V> previous, int count) {
+        var bucket = new Bucket<K, V>(count);
+        bucket.prev = previous;
+        bucket.next = previous == null ? lowestBucket : previous.next;
+        if (bucket.next != null) {
+            bucket.next.prev = bucket;
+        }
+        if (previous == null) {
+            lowestBucket = bucket;
+        } else {
+            previous.next = bucket;
+        }
+        return bucket;
+    }
+
+    private void unlink(ForgettingMap.Node<K, V> node) {
+        var bucket = bucketOf(node);
+        bucket.unlink(node);
+        if (bucket.isEmpty()) {
+            if (bucket == agingCursor) {
+                agingCursor = bucket.next;
+            }
+            if (bucket.prev != null) {
+                bucket.prev.next = bucket.next;
+            } else {
+                lowestBucket = bucket.next;
+            }
+            if (bucket.next != null) {
+                bucket.next.prev = bucket.prev;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Bucket<K, V> bucketOf(ForgettingMap.Node<K, V> node) {
+        return (Bucket<K, V>) node.queue;
+    }
+
+    /**
+     * All entries fetched exactly {@code count} times, in the order they arrived in the bucket.
+     */
+    private static class Bucket<K, V> extends NodeList<K, V> {
+        private int count;
+        private Bucket<K, V> prev;
+        private Bucket<K, V> next;
+
+        Bucket(int count) {
+            this.count = count;
+        }
+    }
+}
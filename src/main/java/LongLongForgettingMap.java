@@ -0,0 +1,80 @@
+/**
+ * Notes :
+ * 1. ForgettingMap specialised for long keys and long values, as LongForgettingMap but values are also held in a
+ * primitive array, so nothing is boxed or allocated at all.
+ * 2. get returns the noEntryValue given to the constructor when the key is absent, pick a value that is never stored.
+ * 3. NOT thread-safe.
+ */
+public class LongLongForgettingMap {
+
+    private final int maxCapacity;
+    private final long noEntryValue;
+    private final LongKeyIndex index;
+    private final IndexedFrequencyList frequencies;
+    private final long[] keys;
+    private final long[] values;
+    private int size;
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     * @param noEntryValue - returned by get and put when there was no value for the key
+     */
+    public LongLongForgettingMap(int capacity, long noEntryValue) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.maxCapacity = capacity;
+        this.noEntryValue = noEntryValue;
+        this.index = new LongKeyIndex(capacity);
+        this.frequencies = new IndexedFrequencyList(capacity);
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    /**
+     * @see ForgettingMap#get(Object)
+     */
+    public long get(long key) {
+        int entry = index.get(key);
+        if (entry < 0) {
+            return noEntryValue;
+        }
+        frequencies.increment(entry);
+        return values[entry];
+    }
+
+    /**
+     * @see ForgettingMap#put(Object, Object)
+     */
+    public long put(long key, long value) {
+        int entry = index.get(key);
+        if (entry >= 0) {
+            long previousValue = values[entry];
+            values[entry] = value;
+            return previousValue;
+        }
+        if (size >= maxCapacity) {
+            entry = frequencies.lowest();
+            frequencies.remove(entry);
+            index.remove(keys[entry]);
+        } else {
+            entry = size++;
+        }
+        keys[entry] = key;
+        values[entry] = value;
+        index.put(key, entry);
+        frequencies.add(entry);
+        return noEntryValue;
+    }
+
+    /**
+     * Does not count as a fetch.
+     */
+    public boolean containsKey(long key) {
+        return index.get(key) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
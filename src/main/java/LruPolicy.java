@@ -0,0 +1,29 @@
+/**
+ * Notes :
+ * 1. Least recently added or fetched first.  Entries are kept in one NodeList in access order, a fetch moves its entry
+ * to the tail and the victim is the head, so every call is O(1).
+ */
+class LruPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private final NodeList<K, V> accessOrder = new NodeList<>();
+
+    @Override
+    public void recordInsert(ForgettingMap.Node<K, V> node) {
+        accessOrder.linkLast(node);
+    }
+
+    @Override
+    public void recordAccess(ForgettingMap.Node<K, V> node) {
+        accessOrder.moveToTail(node);
+    }
+
+    @Override
+    public void recordRemoval(ForgettingMap.Node<K, V> node) {
+        accessOrder.unlink(node);
+    }
+
+    @Override
+    public ForgettingMap.Node<K, V> selectVictim() {
+        return accessOrder.head;
+    }
+}
@@ -0,0 +1,172 @@
+import lombok.Builder;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Notes :
+ * 1. Online estimate of the hit ratio a map would have at any capacity, from the gets it actually serves, so capacity
+ * can be sized from live traffic rather than guessed.  Give the same curve to a ForgettingMap (or every segment of a
+ * ConcurrentForgettingMap) and query hitRatio for the capacities of interest.
+ * 2. SHARDS, spatially hashed sampling of reuse distances.  A key is sampled if a mix of its hash falls under a
+ * threshold, so a sampled key has every get measured, and for each the number of distinct sampled keys fetched since
+ * its previous get is found in O(log n) with a Fenwick tree over last fetch times.  Scaled by the sampling rate, that
+ * is the key's reuse distance, and a get hits in an LRU of capacity C exactly when its distance is under C.  The
+ * histogram of distances therefore gives the hit ratio at every capacity at once.  The count of sampled gets is
+ * corrected to the expected count for the rate (SHARDS-adj), which removes most of the bias of small samples.
+ * 3. Unsampled gets cost a multiply, a compare and a LongAdder increment.  Sampled gets take a lock, with the default
+ * rate of 1 in 1000 that is rarely contended.
+ * 4. Memory is bounded by maxTrackedKeys.  Past it the sampled key fetched longest ago is forgotten, and its next get
+ * counts as a miss, so the estimate is only reliable up to maximumCapacity(), maxTrackedKeys / samplingRate.
+ * 5. Reuse distance models LRU, so the curve estimates an LRU of each capacity.  Least fetched eviction usually does
+ * as well or better on skewed traffic, so use the curve to find where extra capacity stops paying, and confirm with
+ * the simulator on a recorded trace.  Puts are not counted, a put after a missed get is not another request.
+ */
+public class MissRatioCurve {
+
+    private static final int DEFAULT_MAX_TRACKED_KEYS = 1 << 14;
+
+    private final double samplingRate;
+    private final long sampleThreshold;
+    private final int maxTrackedKeys;
+    private final LongAdder requests = new LongAdder();
+    // guarded by this
+    private final LinkedHashMap<Integer, Integer> lastFetched;
+    private final long[] histogram;
+    private long sampled;
+    private int[] tree;
+    private int time;
+
+    /**
+     * @param samplingRate - fraction of keys measured, between 0 and 1, 0 for the default of 1 in 1000
+     * @param maxTrackedKeys - sampled keys remembered at once, 0 for the default of 16384
+     */
+    @Builder
+    private MissRatioCurve(double samplingRate, int maxTrackedKeys) {
+        if (samplingRate < 0 || samplingRate > 1) {
+            throw new IllegalArgumentException("samplingRate must be between 0 and 1, was " + samplingRate);
+        }
+        this.samplingRate = samplingRate == 0 ? 0.001 : samplingRate;
+        this.sampleThreshold = (long) (this.samplingRate * (1L << 32));
+        this.maxTrackedKeys = maxTrackedKeys <= 0 ? DEFAULT_MAX_TRACKED_KEYS : maxTrackedKeys;
+        this.lastFetched = new LinkedHashMap<>(this.maxTrackedKeys * 4 / 3 + 1, 0.75f, true);
+        this.histogram = new long[this.maxTrackedKeys];
+        this.tree = new int[2 * this.maxTrackedKeys + 1];
+    }
+
+    /**
+     * Thread-safe.
+     * @return estimated fraction of gets that would hit in an LRU of the capacity, 0 before any get
+     */
+    public double hitRatio(long capacity) {
+        double expected = requests.sum() * samplingRate;
+        if (expected == 0) {
+            return 0;
+        }
+        // sampled distances under capacity * rate are hits
+        long limit = (long) Math.ceil(capacity * samplingRate);
+        long hits = 0;
+        long measured;
+        synchronized (this) {
+            for (int distance = 0; distance < Math.min(limit, histogram.length); distance++) {
+                hits += histogram[distance];
+            }
+            measured = sampled;
+        }
+        if (limit > 0) {
+            // SHARDS-adj, the shortfall or excess of sampled gets against the expected count goes to distance 0
+            hits += Math.round(expected - measured);
+        }
+        return Math.max(0, Math.min(1, hits / expected));
+    }
+
+    public double missRatio(long capacity) {
+        return 1 - hitRatio(capacity);
+    }
+
+    /**
+     * @return largest capacity the curve can estimate, beyond it hit ratios are underestimated
+     */
+    public long maximumCapacity() {
+        return (long) (maxTrackedKeys / samplingRate);
+    }
+
+    /**
+     * @return gets measured so far
+     */
+    public synchronized long sampledCount() {
+        return sampled;
+    }
+
+    /**
+     * @return gets seen so far, measured or not
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    void record(Object key) {
+        requests.increment();
+        int hash = key.hashCode();
+        // the same mix as AccessRecorder, so a recorder and a curve at one rate sample the same keys
+        int mixed = (hash ^ (hash >>> 16)) * 0xc2b2ae35;
+        mixed ^= mixed >>> 16;
+        if ((mixed & 0xffffffffL) >= sampleThreshold) {
+            return;
+        }
+        recordSampled(mixed);
+    }
+
+    private synchronized void recordSampled(int sampledHash) {
+        sampled++;
+        if (time + 1 >= tree.length) {
+            compact();
+        }
+        int now = ++time;
+        var previous = lastFetched.put(sampledHash, now);
+        if (previous == null) {
+            if (lastFetched.size() > maxTrackedKeys) {
+                Iterator<Map.Entry<Integer, Integer>> eldest = lastFetched.entrySet().iterator();
+                add(eldest.next().getValue(), -1);
+                eldest.remove();
+            }
+        } else {
+            // distinct keys fetched since, each marked once at its latest fetch
+            int distance = sum(now - 1) - sum(previous);
+            add(previous, -1);
+            if (distance < histogram.length) {
+                histogram[distance]++;
+            }
+        }
+        add(now, 1);
+    }
+
+    /**
+     * Times run out after 2 * maxTrackedKeys gets, renumber the tracked keys 1..n in fetch order, which is the order
+     * the access-ordered map already holds them in.
+     */
+    private void compact() {
+        tree = new int[tree.length];
+        time = 0;
+        for (var entry : lastFetched.entrySet()) {
+            entry.setValue(++time);
+            add(time, 1);
+        }
+    }
+
+    private void add(int index, int delta) {
+        for (int i = index; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private int sum(int index) {
+        int total = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+}
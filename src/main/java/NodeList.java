@@ -0,0 +1,93 @@
+/**
+ * Intrusive doubly linked list of a map's nodes, threaded through their prev and next links, so linking and unlinking
+ * allocate nothing.  A node is in at most one list at a time, the one its queue field points at.
+ */
+class NodeList<K, V> {
+    ForgettingMap.Node<K, V> head;
+    ForgettingMap.Node<K, V> tail;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    void linkLast(ForgettingMap.Node<K, V> node) {
+        node.queue = this;
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+    }
+
+    /**
+     * @param successor - already in this list
+     */
+    void linkBefore(ForgettingMap.Node<K, V> node, ForgettingMap.Node<K, V> successor) {
+        node.queue = this;
+        node.prev = successor.prev;
+        node.next = successor;
+        if (successor.prev == null) {
+            head = node;
+        } else {
+            successor.prev.next = node;
+        }
+        successor.prev = node;
+        size++;
+    }
+
+    void unlink(ForgettingMap.Node<K, V> node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.queue = null;
+        size--;
+    }
+
+    /**
+     * @param replacement - not in any list, takes the node's place and referenced flag
+     */
+    void replace(ForgettingMap.Node<K, V> node, ForgettingMap.Node<K, V> replacement) {
+        replacement.queue = this;
+        replacement.prev = node.prev;
+        replacement.next = node.next;
+        replacement.referenced = node.referenced;
+        if (node.prev == null) {
+            head = replacement;
+        } else {
+            node.prev.next = replacement;
+        }
+        if (node.next == null) {
+            tail = replacement;
+        } else {
+            node.next.prev = replacement;
+        }
+        node.prev = null;
+        node.next = null;
+        node.queue = null;
+    }
+
+    void moveToTail(ForgettingMap.Node<K, V> node) {
+        if (node != tail) {
+            unlink(node);
+            linkLast(node);
+        }
+    }
+}
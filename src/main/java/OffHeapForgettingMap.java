@@ -0,0 +1,257 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Notes :
+ * 1. ForgettingMap whose keys and values live off heap, so tens of GB can be cached without growing the old generation
+ * or GC pause times.  Each association is a record (hash, key length, value length, key bytes, value bytes) in memory
+ * handed out by a SlabAllocator, written and read through the Serializers given to the constructor.
+ * 2. The hash index (open addressing, linear probing, backward-shift deletion) and the entry to record address table
+ * are direct buffers too.  Eviction order is an IndexedFrequencyList, a few int arrays on heap with no per-entry
+ * objects, which the GC never has to trace.
+ * 3. Keys are matched on hashCode and then on their serialized bytes.  get deserializes the value on every call, so
+ * values should be cheap to decode, or be byte[] with Serializer.bytes().
+ * 4. Least fetched eviction with ties broken oldest first, as ForgettingMap(int).
+ * 5. Uses direct ByteBuffers rather than the Foreign Memory API, which does not exist in the Java 11 this builds on.
+ * Slab memory is released when the map is garbage collected.
+ * 6. NOT thread-safe, get repositions the shared slab buffers.
+ */
+public class OffHeapForgettingMap<K, V> {
+
+    private static final int DEFAULT_SLAB_SIZE = 64 << 20;
+    private static final int MAX_SLAB_SIZE = 1 << 30;
+    private static final int HEADER = 12;
+    private static final int KEY_LENGTH = 4;
+    private static final int VALUE_LENGTH = 8;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int maxCapacity;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final SlabAllocator allocator;
+    private final IndexedFrequencyList frequencies;
+    private final LongBuffer addresses;
+    // two ints per slot, the key hash and the entry index + 1, 0 marking an empty slot
+    private final IntBuffer slots;
+    private final int slotMask;
+    private ByteBuffer keyScratch = newScratch(64);
+    private ByteBuffer valueScratch = newScratch(256);
+    private int size;
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     */
+    public OffHeapForgettingMap(int capacity, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(capacity, keySerializer, valueSerializer, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * @param capacity - maximum size of the map before least fetched are dropped
+     * @param slabSize - bytes of off-heap memory reserved at a time, also the largest record that can be stored
+     */
+    public OffHeapForgettingMap(int capacity, Serializer<K> keySerializer, Serializer<V> valueSerializer, int slabSize) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (slabSize < HEADER || slabSize > MAX_SLAB_SIZE) {
+            throw new IllegalArgumentException("slabSize must be between " + HEADER + " and " + MAX_SLAB_SIZE);
+        }
+        this.maxCapacity = capacity;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.allocator = new SlabAllocator(slabSize);
+        this.frequencies = new IndexedFrequencyList(capacity);
+        this.addresses = ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        int slotCount = 2;
+        while (slotCount * LOAD_FACTOR < capacity) {
+            slotCount <<= 1;
+        }
+        this.slots = ByteBuffer.allocateDirect(slotCount * 2 * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.slotMask = slotCount - 1;
+    }
+
+    /**
+     * @see ForgettingMap#get(Object)
+     */
+    public V get(K key) {
+        int hash = hash(key);
+        keyScratch = serialize(keySerializer, key, keyScratch);
+        int entry = find(hash);
+        if (entry < 0) {
+            return null;
+        }
+        frequencies.increment(entry);
+        return readValue(addresses.get(entry));
+    }
+
+    /**
+     * @see ForgettingMap#put(Object, Object)
+     */
+    public V put(K key, V value) {
+        int hash = hash(key);
+        keyScratch = serialize(keySerializer, key, keyScratch);
+        valueScratch = serialize(valueSerializer, value, valueScratch);
+        int entry = find(hash);
+        if (entry >= 0) {
+            long address = addresses.get(entry);
+            V previousValue = readValue(address);
+            addresses.put(entry, writeRecord(hash, address));
+            return previousValue;
+        }
+        long address = writeRecord(hash, SlabAllocator.NO_ADDRESS);
+        if (size >= maxCapacity) {
+            entry = frequencies.lowest();
+            frequencies.remove(entry);
+            long victim = addresses.get(entry);
+            removeSlot(allocator.slab(victim).getInt(SlabAllocator.offset(victim)), entry);
+            allocator.free(victim, recordSize(victim));
+        } else {
+            entry = size++;
+        }
+        addresses.put(entry, address);
+        insertSlot(hash, entry);
+        frequencies.add(entry);
+        return null;
+    }
+
+    /**
+     * Does not count as a fetch.
+     */
+    public boolean containsKey(K key) {
+        keyScratch = serialize(keySerializer, key, keyScratch);
+        return find(hash(key)) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes of off-heap record memory reserved so far, excluding the index
+     */
+    public long offHeapBytes() {
+        return allocator.allocatedBytes();
+    }
+
+    /**
+     * @return entry holding the key in keyScratch, or -1
+     */
+    private int find(int hash) {
+        for (int i = hash & slotMask; slots.get(2 * i + 1) != 0; i = (i + 1) & slotMask) {
+            if (slots.get(2 * i) == hash) {
+                int entry = slots.get(2 * i + 1) - 1;
+                if (keyMatches(addresses.get(entry))) {
+                    return entry;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void insertSlot(int hash, int entry) {
+        int i = hash & slotMask;
+        while (slots.get(2 * i + 1) != 0) {
+            i = (i + 1) & slotMask;
+        }
+        slots.put(2 * i, hash);
+        slots.put(2 * i + 1, entry + 1);
+    }
+
+    private void removeSlot(int hash, int entry) {
+        int gap = hash & slotMask;
+        while (slots.get(2 * gap + 1) != entry + 1) {
+            gap = (gap + 1) & slotMask;
+        }
+        for (int i = (gap + 1) & slotMask; slots.get(2 * i + 1) != 0; i = (i + 1) & slotMask) {
+            int home = slots.get(2 * i) & slotMask;
+            if (((i - home) & slotMask) >= ((i - gap) & slotMask)) {
+                slots.put(2 * gap, slots.get(2 * i));
+                slots.put(2 * gap + 1, slots.get(2 * i + 1));
+                gap = i;
+            }
+        }
+        slots.put(2 * gap + 1, 0);
+    }
+
+    private boolean keyMatches(long address) {
+        var slab = allocator.slab(address);
+        int offset = SlabAllocator.offset(address);
+        int keyLength = slab.getInt(offset + KEY_LENGTH);
+        if (keyLength != keyScratch.limit()) {
+            return false;
+        }
+        slab.limit(offset + HEADER + keyLength).position(offset + HEADER);
+        boolean matches = slab.mismatch(keyScratch) < 0;
+        slab.clear();
+        return matches;
+    }
+
+    private V readValue(long address) {
+        var slab = allocator.slab(address);
+        int offset = SlabAllocator.offset(address);
+        int valueStart = offset + HEADER + slab.getInt(offset + KEY_LENGTH);
+        slab.limit(valueStart + slab.getInt(offset + VALUE_LENGTH)).position(valueStart);
+        try {
+            return valueSerializer.deserialize(slab);
+        } finally {
+            slab.clear();
+        }
+    }
+
+    /**
+     * Writes keyScratch and valueScratch as a record, in place if the existing record's chunk is the right size.
+     */
+    private long writeRecord(int hash, long existing) {
+        int keyLength = keyScratch.limit();
+        int valueLength = valueScratch.limit();
+        int size = HEADER + keyLength + valueLength;
+        long address = existing;
+        if (existing == SlabAllocator.NO_ADDRESS || !SlabAllocator.sameChunkSize(recordSize(existing), size)) {
+            // allocate first, so a record too big for a slab leaves the map unchanged
+            address = allocator.allocate(size);
+            if (existing != SlabAllocator.NO_ADDRESS) {
+                allocator.free(existing, recordSize(existing));
+            }
+        }
+        var slab = allocator.slab(address);
+        int offset = SlabAllocator.offset(address);
+        slab.putInt(offset, hash);
+        slab.putInt(offset + KEY_LENGTH, keyLength);
+        slab.putInt(offset + VALUE_LENGTH, valueLength);
+        var target = slab.duplicate();
+        target.position(offset + HEADER);
+        target.put(keyScratch.duplicate());
+        target.put(valueScratch.duplicate());
+        return address;
+    }
+
+    private int recordSize(long address) {
+        var slab = allocator.slab(address);
+        int offset = SlabAllocator.offset(address);
+        return HEADER + slab.getInt(offset + KEY_LENGTH) + slab.getInt(offset + VALUE_LENGTH);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x85ebca6b;
+        return h ^ (h >>> 16);
+    }
+
+    private static <T> ByteBuffer serialize(Serializer<T> serializer, T value, ByteBuffer scratch) {
+        while (true) {
+            scratch.clear();
+            try {
+                serializer.serialize(value, scratch);
+                return scratch.flip();
+            } catch (BufferOverflowException e) {
+                scratch = newScratch(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    private static ByteBuffer newScratch(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Notes :
+ * 1. Striped, bounded, multiple-producer / single-consumer ring buffer used to record reads without taking a lock.
+ * Producers pick a stripe from their thread id, so threads hammering the same hot key append to different stripes.
+ * 2. Lossy by design, an offer to a full stripe is dropped.  Fetch counts are a popularity estimate, and losing a few
+ * accesses under heavy contention is preferable to making readers wait for the consumer.
+ * 3. drain must only be called by one thread at a time, i.e. while holding the owner's eviction lock.
+ */
+class ReadBuffer<E> {
+
+    static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    ReadBuffer(int stripeCount) {
+        int count = 1;
+        while (count < stripeCount) {
+            count <<= 1;
+        }
+        @SuppressWarnings("unchecked")
+        var stripes = (Stripe<E>[]) new Stripe<?>[count];
+        this.stripes = stripes;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * @return true if the stripe written to is now full (or the element was dropped because it already was), a hint
+     * that the caller should drain the buffer
+     */
+    boolean offer(E element) {
+        var stripe = stripes[stripeIndex()];
+        while (true) {
+            long head = stripe.readCount;
+            long tail = stripe.writeCount.get();
+            if (tail - head >= STRIPE_SIZE) {
+                return true;
+            }
+            if (stripe.writeCount.compareAndSet(tail, tail + 1)) {
+                stripe.slots.lazySet((int) (tail & STRIPE_MASK), element);
+                return tail - head + 1 >= STRIPE_SIZE;
+            }
+        }
+    }
+
+    /**
+     * Hands every published element to the consumer, oldest first within each stripe.
+     */
+    void drain(Consumer<? super E> consumer) {
+        for (var stripe : stripes) {
+            long head = stripe.readCount;
+            long tail = stripe.writeCount.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & STRIPE_MASK);
+                E element = stripe.slots.get(index);
+                if (element == null) {
+                    // claimed by a producer but not yet published, pick it up on the next drain
+                    break;
+                }
+                stripe.slots.lazySet(index, null);
+                consumer.accept(element);
+            }
+            stripe.readCount = head;
+        }
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+    }
+
+    private static class Stripe<E> {
+        private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        private volatile long readCount;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Notes :
+ * 1. Segmented LFU, for scan resistance.  New entries enter a probation segment, in LRU order, and only move to the
+ * protected segment on their second fetch.  Victims come from the head of probation while it has any entries, so a
+ * scan of keys fetched at most once cycles through probation without displacing protected entries.
+ * 2. Protected is least fetched first, an LfuPolicy the promoted entry joins with the count of its fetches so far, and
+ * holds up to 80% of capacity.  Promoting into a full protected segment demotes its least fetched entry to the tail of
+ * probation, where it must be fetched twice more to return.
+ * 3. Aging, if set, halves the counts in protected, so entries popular long ago are the first demoted.  All O(1).
+ */
+class SegmentedLfuPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private static final double PROTECTED_SHARE = 0.8;
+    private static final int PROMOTION_FETCHES = 2;
+
+    private final int maximumProtected;
+    private final NodeList<K, V> probation = new NodeList<>();
+    private final LfuPolicy<K, V> protectedSegment;
+    private int protectedSize;
+
+    /**
+     * @param capacity - number of entries the map holds, sizes the protected segment
+     * @param agingPeriod - number of gets and puts between halving the protected counts, 0 to never age
+     */
+    SegmentedLfuPolicy(int capacity, int agingPeriod) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        }
+        this.maximumProtected = Math.max(1, (int) (capacity * PROTECTED_SHARE));
+        this.protectedSegment = new LfuPolicy<>(null, agingPeriod, StatsCounter.disabled(), 0);
+    }
+
+    @Override
+    public void recordOperation() {
+        protectedSegment.recordOperation();
+    }
+
+    @Override
+    public void recordInsert(ForgettingMap.Node<K, V> node) {
+        node.referenced = false;
+        probation.linkLast(node);
+    }
+
+    @Override
+    public void recordAccess(ForgettingMap.Node<K, V> node) {
+        if (node.queue != probation) {
+            protectedSegment.recordAccess(node);
+            return;
+        }
+        if (!node.referenced) {
+            node.referenced = true;
+            probation.moveToTail(node);
+            return;
+        }
+        probation.unlink(node);
+        if (protectedSize == maximumProtected) {
+            var demoted = protectedSegment.selectVictim();
+            protectedSegment.recordRemoval(demoted);
+            protectedSize--;
+            demoted.referenced = false;
+            probation.linkLast(demoted);
+        }
+        protectedSegment.recordInsert(node);
+        for (int i = 0; i < PROMOTION_FETCHES; i++) {
+            protectedSegment.recordAccess(node);
+        }
+        protectedSize++;
+    }
+
+    @Override
+    public void recordRemoval(ForgettingMap.Node<K, V> node) {
+        if (node.queue == probation) {
+            probation.unlink(node);
+        } else {
+            protectedSegment.recordRemoval(node);
+            protectedSize--;
+        }
+    }
+
+    @Override
+    public void recordReplacement(ForgettingMap.Node<K, V> node, ForgettingMap.Node<K, V> replacement) {
+        if (node.queue == probation) {
+            probation.replace(node, replacement);
+        } else {
+            protectedSegment.recordReplacement(node, replacement);
+        }
+    }
+
+    @Override
+    public ForgettingMap.Node<K, V> selectVictim() {
+        return probation.isEmpty() ? protectedSegment.selectVictim() : probation.head;
+    }
+}
@@ -0,0 +1,66 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys and values to and from the bytes an OffHeapForgettingMap stores.  Equal keys must serialize to equal
+ * bytes, as keys are matched by hashCode and then by their serialized form.
+ */
+public interface Serializer<T> {
+
+    /**
+     * Writes the value from the target's position.  If the target is too small, throw BufferOverflowException (as the
+     * relative put methods do) and the map will retry with a larger buffer.
+     */
+    void serialize(T value, ByteBuffer target);
+
+    /**
+     * Reads a value from the bytes between the source's position and limit.
+     */
+    T deserialize(ByteBuffer source);
+
+    static Serializer<Long> longs() {
+        return new Serializer<>() {
+            @Override
+            public void serialize(Long value, ByteBuffer target) {
+                target.putLong(value);
+            }
+
+            @Override
+            public Long deserialize(ByteBuffer source) {
+                return source.getLong();
+            }
+        };
+    }
+
+    static Serializer<String> strings() {
+        return new Serializer<>() {
+            @Override
+            public void serialize(String value, ByteBuffer target) {
+                target.put(value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String deserialize(ByteBuffer source) {
+                var bytes = new byte[source.remaining()];
+                source.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    static Serializer<byte[]> bytes() {
+        return new Serializer<>() {
+            @Override
+            public void serialize(byte[] value, ByteBuffer target) {
+                target.put(value);
+            }
+
+            @Override
+            public byte[] deserialize(ByteBuffer source) {
+                var bytes = new byte[source.remaining()];
+                source.get(bytes);
+                return bytes;
+            }
+        };
+    }
+}
@@ -0,0 +1,96 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Notes :
+ * 1. Hands out chunks of off-heap memory carved from large direct ByteBuffer slabs, for OffHeapForgettingMap records.
+ * The GC sees one small object per slab however many records it holds.
+ * 2. Chunks are rounded up to a power of 2 size class, from 16 bytes up to the slab size.  A freed chunk goes on its
+ * class's free list, linked through its own first 8 bytes, and is reused before any new memory is carved.
+ * 3. An address is the slab index in the high 32 bits and the offset within the slab in the low 32 bits.
+ * 4. Slabs are only released when the allocator is garbage collected, direct buffers cannot be freed explicitly.
+ */
+class SlabAllocator {
+
+    static final long NO_ADDRESS = -1;
+    private static final int MIN_CHUNK_SHIFT = 4;
+
+    private final int slabSize;
+    private final int reservedSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final long[] freeLists = new long[Integer.SIZE];
+    private int bump;
+
+    /**
+     * @param slabSize - bytes per slab, also the largest chunk that can be allocated
+     */
+    SlabAllocator(int slabSize) {
+        this(slabSize, slabSize);
+    }
+
+    /**
+     * Only for tests, to check addressing at slab sizes too large to reserve.
+     * @param reservedSize - bytes actually allocated per slab, at most slabSize
+     */
+    SlabAllocator(int slabSize, int reservedSize) {
+        this.slabSize = slabSize;
+        this.reservedSize = reservedSize;
+        this.bump = slabSize;
+        Arrays.fill(freeLists, NO_ADDRESS);
+    }
+
+    long allocate(int size) {
+        int sizeClass = sizeClass(size);
+        int chunkSize = 1 << sizeClass;
+        if (chunkSize > slabSize) {
+            throw new IllegalArgumentException(size + " bytes will not fit in a slab of " + slabSize);
+        }
+        long head = freeLists[sizeClass];
+        if (head != NO_ADDRESS) {
+            freeLists[sizeClass] = slab(head).getLong(offset(head));
+            return head;
+        }
+        if (chunkSize > slabSize - bump) {
+            slabs.add(ByteBuffer.allocateDirect(reservedSize).order(ByteOrder.nativeOrder()));
+            bump = 0;
+        }
+        long address = ((long) (slabs.size() - 1) << 32) | bump;
+        bump += chunkSize;
+        return address;
+    }
+
+    /**
+     * @param size - the size the chunk was allocated with
+     */
+    void free(long address, int size) {
+        int sizeClass = sizeClass(size);
+        slab(address).putLong(offset(address), freeLists[sizeClass]);
+        freeLists[sizeClass] = address;
+    }
+
+    /**
+     * @return true if chunks allocated for the two sizes are interchangeable
+     */
+    static boolean sameChunkSize(int size, int otherSize) {
+        return sizeClass(size) == sizeClass(otherSize);
+    }
+
+    ByteBuffer slab(long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+
+    static int offset(long address) {
+        return (int) address;
+    }
+
+    long allocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+
+    private static int sizeClass(int size) {
+        return Math.max(MIN_CHUNK_SHIFT, Integer.SIZE - Integer.numberOfLeadingZeros(size - 1));
+    }
+}
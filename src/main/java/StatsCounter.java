@@ -0,0 +1,78 @@
+/**
+ * Notes :
+ * 1. Records ForgettingMap activity.  Maps default to disabled(), a stateless singleton whose empty methods the JIT
+ * inlines away, so a map without stats pays nothing on get and put.
+ * 2. One counter may be shared by several maps, e.g. every segment of a ConcurrentForgettingMap, so implementations
+ * must be thread-safe, see ConcurrentStatsCounter.
+ */
+public interface StatsCounter {
+
+    void recordHit();
+
+    void recordMiss();
+
+    /**
+     * A new key was added.
+     */
+    void recordPut();
+
+    /**
+     * The value of an existing key was replaced.
+     */
+    void recordReplacement();
+
+    void recordEviction();
+
+    /**
+     * An entry was removed because its time-to-live or idle time ran out.
+     */
+    void recordExpiration();
+
+    /**
+     * Choosing a victim had to apply the tie-breaking comparator across several least used entries.
+     */
+    void recordEvictionScan();
+
+    ForgettingMapStats snapshot();
+
+    static StatsCounter disabled() {
+        return DisabledStatsCounter.INSTANCE;
+    }
+
+    enum DisabledStatsCounter implements StatsCounter {
+        INSTANCE;
+
+        @Override
+        public void recordHit() {
+        }
+
+        @Override
+        public void recordMiss() {
+        }
+
+        @Override
+        public void recordPut() {
+        }
+
+        @Override
+        public void recordReplacement() {
+        }
+
+        @Override
+        public void recordEviction() {
+        }
+
+        @Override
+        public void recordExpiration() {
+        }
+
+        @Override
+        public void recordEvictionScan() {
+        }
+
+        @Override
+        public ForgettingMapStats snapshot() {
+            return new ForgettingMapStats(0, 0, 0, 0, 0, 0, 0);
+        }
+    }
+}
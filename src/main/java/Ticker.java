@@ -0,0 +1,12 @@
+/**
+ * Source of time for expiry, in nanoseconds from an arbitrary origin.  Replace in tests to control time.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    long read();
+
+    static Ticker system() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.function.Consumer;
+
+/**
+ * Notes :
+ * 1. Hierarchical timer wheel, tracks when each ForgettingMap node expires so that expired entries are found without
+ * scanning the map.  Scheduling, rescheduling and cancelling are O(1), linking the node into a bucket's list.
+ * 2. Each level's buckets span exactly the next level's bucket, roughly 1 second, 1 minute, 1 hour and 18 hours, with
+ * one overflow bucket for anything due after 13 days.  A node goes on the finest level that covers its remaining time.
+ * 3. advance visits only the buckets whose time has passed.  Nodes in them that are due are handed to the expiry
+ * callback, the rest are cascaded down to a finer level, so each node is touched O(levels) times before it expires.
+ * 4. Above the finest level a node is filed one bucket before its deadline's, so it cascades down before it is due
+ * rather than up to a coarse bucket after.
+ * 5. The finest bucket the current time falls in is kept in deadline order, merge sorted once when time reaches it and
+ * then scheduled into by walking back from its latest deadline, so advance also expires the nodes in it that are due,
+ * taking them from its head.  A node is handed to the callback on the first advance at or after its deadline, not up
+ * to a second later, so a put at capacity reclaims expired entries before evicting a live one.  Deadlines of entries
+ * written at a steady rate with one time to live arrive in order, and the walk back stops at once.
+ * 6. Times are relative to the owner's origin and never negative.
+ */
+class TimerWheel<K, V> {
+
+    private static final int[] SHIFTS = {30, 36, 42, 46, 50};
+    private static final int[] BUCKETS = {64, 64, 16, 16, 1};
+
+    private final ForgettingMap.ExpiringNode<K, V>[][] wheel;
+    private final Consumer<ForgettingMap.ExpiringNode<K, V>> onExpiry;
+    private long time;
+
+    TimerWheel(long time, Consumer<ForgettingMap.ExpiringNode<K, V>> onExpiry) {
+        this.time = time;
+        this.onExpiry = onExpiry;
+        @SuppressWarnings("unchecked")
+        var levels = (ForgettingMap.ExpiringNode<K, V>[][]) new ForgettingMap.ExpiringNode<?, ?>[BUCKETS.length][];
+        this.wheel = levels;
+        for (int level = 0; level < BUCKETS.length; level++) {
+            @SuppressWarnings("unchecked")
+            var buckets = (ForgettingMap.ExpiringNode<K, V>[]) new ForgettingMap.ExpiringNode<?, ?>[BUCKETS[level]];
+            wheel[level] = buckets;
+            for (int i = 0; i < BUCKETS[level]; i++) {
+                var sentinel = new ForgettingMap.ExpiringNode<K, V>(null, 0, null);
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+                wheel[level][i] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * @return the time the wheel was last advanced to
+     */
+    long time() {
+        return time;
+    }
+
+    /**
+     * Schedules the node by its expiresAt, it must not already be scheduled.
+     */
+    void schedule(ForgettingMap.ExpiringNode<K, V> node) {
+        file(node, true);
+    }
+
+    /**
+     * @param inOrder - keep the current bucket in deadline order, false while advance will sort it anyway
+     */
+    private void file(ForgettingMap.ExpiringNode<K, V> node, boolean inOrder) {
+        long deadline = Math.max(node.expiresAt, time);
+        long remaining = deadline - time;
+        int level = 0;
+        while (level < SHIFTS.length - 1 && remaining >= 1L << SHIFTS[level + 1]) {
+            level++;
+        }
+        var buckets = wheel[level];
+        long ticks = (deadline >>> SHIFTS[level]) - (level == 0 ? 0 : 1);
+        var sentinel = buckets[(int) ticks & (buckets.length - 1)];
+        var previous = sentinel.timerPrev;
+        if (inOrder && sentinel == currentBucket()) {
+            while (previous != sentinel && previous.expiresAt > node.expiresAt) {
+                previous = previous.timerPrev;
+            }
+        }
+        node.timerPrev = previous;
+        node.timerNext = previous.timerNext;
+        previous.timerNext.timerPrev = node;
+        previous.timerNext = node;
+    }
+
+    void reschedule(ForgettingMap.ExpiringNode<K, V> node) {
+        cancel(node);
+        schedule(node);
+    }
+
+    void cancel(ForgettingMap.ExpiringNode<K, V> node) {
+        if (node.timerNext != null) {
+            node.timerPrev.timerNext = node.timerNext;
+            node.timerNext.timerPrev = node.timerPrev;
+            node.timerPrev = null;
+            node.timerNext = null;
+        }
+    }
+
+    /**
+     * Moves the wheel on to the current time, expiring every node in the buckets passed and every node due in the
+     * current one.
+     */
+    void advance(long currentTime) {
+        long previousTime = time;
+        if (currentTime <= previousTime) {
+            return;
+        }
+        time = currentTime;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long previousTicks = previousTime >>> SHIFTS[level];
+            long currentTicks = currentTime >>> SHIFTS[level];
+            if (currentTicks == previousTicks) {
+                break;
+            }
+            expire(level, previousTicks, currentTicks - previousTicks);
+        }
+        var sentinel = currentBucket();
+        if (previousTime >>> SHIFTS[0] != currentTime >>> SHIFTS[0]) {
+            sort(sentinel);
+        }
+        while (sentinel.timerNext != sentinel && sentinel.timerNext.expiresAt <= time) {
+            var node = sentinel.timerNext;
+            cancel(node);
+            onExpiry.accept(node);
+        }
+    }
+
+    private ForgettingMap.ExpiringNode<K, V> currentBucket() {
+        return wheel[0][(int) (time >>> SHIFTS[0]) & (BUCKETS[0] - 1)];
+    }
+
+    private void expire(int level, long previousTicks, long ticks) {
+        var buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(ticks, buckets.length);
+        for (int i = 0; i < steps; i++) {
+            var sentinel = buckets[(int) (previousTicks + i) & mask];
+            var node = sentinel.timerNext;
+            sentinel.timerPrev = sentinel;
+            sentinel.timerNext = sentinel;
+            while (node != sentinel) {
+                var next = node.timerNext;
+                node.timerPrev = null;
+                node.timerNext = null;
+                if (node.expiresAt <= time) {
+                    onExpiry.accept(node);
+                } else {
+                    file(node, false);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Bottom-up merge sort of the bucket's list by expiresAt, O(n log n) and allocating nothing.
+     */
+    private static <K, V> void sort(ForgettingMap.ExpiringNode<K, V> sentinel) {
+        if (sentinel.timerNext == sentinel) {
+            return;
+        }
+        // sorted as a null terminated list through timerNext, timerPrev is relinked after
+        sentinel.timerPrev.timerNext = null;
+        var list = sentinel.timerNext;
+        for (int width = 1; ; width <<= 1) {
+            ForgettingMap.ExpiringNode<K, V> head = null;
+            ForgettingMap.ExpiringNode<K, V> tail = null;
+            int merges = 0;
+            var left = list;
+            while (left != null) {
+                merges++;
+                var right = left;
+                int leftSize = 0;
+                while (leftSize < width && right != null) {
+                    leftSize++;
+                    right = right.timerNext;
+                }
+                int rightSize = width;
+                while (leftSize > 0 || (rightSize > 0 && right != null)) {
+                    ForgettingMap.ExpiringNode<K, V> next;
+                    if (leftSize > 0 && (rightSize == 0 || right == null || left.expiresAt <= right.expiresAt)) {
+                        next = left;
+                        left = left.timerNext;
+                        leftSize--;
+                    } else {
+                        next = right;
+                        right = right.timerNext;
+                        rightSize--;
+                    }
+                    if (tail == null) {
+                        head = next;
+                    } else {
+                        tail.timerNext = next;
+                    }
+                    tail = next;
+                }
+                left = right;
+            }
+            tail.timerNext = null;
+            list = head;
+            if (merges <= 1) {
+                break;
+            }
+        }
+        var previous = sentinel;
+        for (var node = list; node != null; node = node.timerNext) {
+            node.timerPrev = previous;
+            previous.timerNext = node;
+            previous = node;
+        }
+        previous.timerNext = sentinel;
+        sentinel.timerPrev = previous;
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Gives the weight of an association, e.g. its approximate size in bytes, for a ForgettingMap bounded by total weight.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * @return weight of the association, not negative, and fixed for as long as the value is in the map
+     */
+    int weigh(K key, V value);
+}
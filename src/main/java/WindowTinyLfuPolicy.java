@@ -0,0 +1,81 @@
+/**
+ * Notes :
+ * 1. Window TinyLFU.  New entries enter a small LRU window, about 1% of capacity, so a burst of new keys that are
+ * briefly hot can earn fetches before they compete with established entries.  Entries leaving the window join the
+ * main region, a segmented LRU of probation (entries not fetched since joining) and protected (fetched again)
+ * segments, protected taking up to 80% of it.
+ * 2. Entering the main region is guarded by a FrequencySketch of every insert and fetch.  When space is needed, the
+ * newest arrival from the window is the candidate and the head of probation the victim, and whichever has the lower
+ * estimated frequency is evicted, the victim on a tie losing only if the candidate is strictly more frequent.  Scans
+ * of one-hit keys therefore cycle through the window and probation without displacing frequent entries.
+ * 3. Fetches in probation promote to protected, and protected overflow is demoted to the tail of probation, so a
+ * once-popular entry gets another chance before it can be evicted.  All O(1).
+ * 4. The sketch sees only inserts and fetches of present keys, so with cache-aside use a rejected key is counted when
+ * it is put again.  TinyLFU admission on the map is redundant with this policy.
+ */
+class WindowTinyLfuPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final int maximumWindow;
+    private final int maximumProtected;
+    private final FrequencySketch<K> sketch;
+    private final NodeList<K, V> window = new NodeList<>();
+    private final NodeList<K, V> probation = new NodeList<>();
+    private final NodeList<K, V> protectedSegment = new NodeList<>();
+
+    WindowTinyLfuPolicy(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        }
+        this.maximumWindow = Math.max(1, (int) (capacity * WINDOW_SHARE));
+        this.maximumProtected = (int) ((capacity - maximumWindow) * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch<>(capacity);
+    }
+
+    @Override
+    public void recordInsert(ForgettingMap.Node<K, V> node) {
+        sketch.increment(node.getKey());
+        window.linkLast(node);
+        while (window.size() > maximumWindow) {
+            var candidate = window.head;
+            window.unlink(candidate);
+            probation.linkLast(candidate);
+        }
+    }
+
+    @Override
+    public void recordAccess(ForgettingMap.Node<K, V> node) {
+        sketch.increment(node.getKey());
+        if (node.queue == probation) {
+            probation.unlink(node);
+            protectedSegment.linkLast(node);
+            while (protectedSegment.size() > maximumProtected) {
+                var demoted = protectedSegment.head;
+                protectedSegment.unlink(demoted);
+                probation.linkLast(demoted);
+            }
+        } else {
+            node.queue.moveToTail(node);
+        }
+    }
+
+    @Override
+    public void recordRemoval(ForgettingMap.Node<K, V> node) {
+        node.queue.unlink(node);
+    }
+
+    @Override
+    public ForgettingMap.Node<K, V> selectVictim() {
+        if (probation.isEmpty()) {
+            return protectedSegment.isEmpty() ? window.head : protectedSegment.head;
+        }
+        var victim = probation.head;
+        var candidate = probation.tail;
+        if (candidate == victim) {
+            return victim;
+        }
+        return sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey()) ? victim : candidate;
+    }
+}
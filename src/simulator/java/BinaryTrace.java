@@ -0,0 +1,105 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Notes :
+ * 1. Compact binary trace format, a 4 byte magic "FMTR" and a version byte, followed by one record per access.  Each
+ * record is the difference from the previous key, zigzag encoded so small negative steps stay small, written as a
+ * little-endian base 128 varint.  Sequential and clustered keys take one or two bytes, random 64 bit keys up to ten.
+ * 2. The stream may be gzipped as a whole, Trace detects that on reading.
+ * 3. Version 2 is written by AccessRecorder.  Each record is the key delta as above, then the zigzag varint difference
+ * from the previous record's timestamp in nanoseconds, then a flags byte, bit 0 set for a put and bit 1 for a get that
+ * hit.  Only gets are replayed, the simulator treats every access as a read-through get.
+ */
+final class BinaryTrace {
+
+    static final byte[] MAGIC = {'F', 'M', 'T', 'R'};
+    static final int VERSION = 1;
+    static final int RECORDED_VERSION = 2;
+
+    private BinaryTrace() {
+    }
+
+    /**
+     * Leaves the stream where it was, which must support mark.
+     */
+    static boolean hasMagic(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            for (byte b : MAGIC) {
+                if (in.read() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    static long[] read(InputStream in) throws IOException {
+        if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+            throw new IOException("not a binary trace, it does not start with the magic FMTR");
+        }
+        int version = in.read();
+        if (version != VERSION && version != RECORDED_VERSION) {
+            throw new IOException("unsupported trace version " + version);
+        }
+        var keys = new Trace.KeyBuffer();
+        long previous = 0;
+        for (int b; (b = in.read()) != -1; ) {
+            previous += readZigzag(in, b);
+            if (version == RECORDED_VERSION) {
+                readZigzag(in, readByte(in));
+                if ((readByte(in) & AccessRecorder.PUT) != 0) {
+                    continue;
+                }
+            }
+            keys.add(previous);
+        }
+        return keys.toArray();
+    }
+
+    /**
+     * @param first - the varint's first byte, already read
+     */
+    private static long readZigzag(InputStream in, int first) throws IOException {
+        int b = first;
+        long zigzag = b & 0x7f;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = readByte(in);
+            zigzag |= (long) (b & 0x7f) << shift;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("trace ends inside a record");
+        }
+        return b;
+    }
+
+    /**
+     * Writes the header and every key, buffer the stream.
+     */
+    static void write(long[] keys, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        long previous = 0;
+        for (long key : keys) {
+            long delta = key - previous;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7fL) != 0) {
+                out.write((int) (zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write((int) zigzag);
+            previous = key;
+        }
+    }
+}
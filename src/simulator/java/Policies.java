@@ -0,0 +1,143 @@
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Notes :
+ * 1. Every policy the simulator knows, by name, each created for a given capacity.  ForgettingMap variants differ
+ * only in their builder settings, so a new tie-breaker or admission change is one more entry here.
+ * 2. lru and fifo are LinkedHashMap baselines, to judge the ForgettingMap variants against.  forgetting-lru should
+ * match lru exactly, a check that the EvictionPolicy wiring changes only the choice of victim.
+ */
+final class Policies {
+
+    private static final Map<String, IntFunction<Policy>> POLICIES = new LinkedHashMap<>();
+
+    static {
+        POLICIES.put("forgetting", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .build()));
+        POLICIES.put("forgetting-key-order", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .tieBreakingComparator(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+                .build()));
+        POLICIES.put("forgetting-aging", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .agingPeriod(10 * capacity)
+                .build()));
+        POLICIES.put("forgetting-aging-ghost", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .agingPeriod(10 * capacity)
+                .ghostHistory(capacity)
+                .build()));
+        POLICIES.put("forgetting-tinylfu", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .tinyLfuAdmission(true)
+                .build()));
+        POLICIES.put("forgetting-tinylfu-aging", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .tinyLfuAdmission(true)
+                .agingPeriod(10 * capacity)
+                .build()));
+        POLICIES.put("forgetting-lru", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .evictionPolicy(EvictionPolicy.lru())
+                .build()));
+        POLICIES.put("forgetting-clock", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .evictionPolicy(EvictionPolicy.clock())
+                .build()));
+        POLICIES.put("forgetting-arc", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .evictionPolicy(EvictionPolicy.arc(capacity))
+                .build()));
+        POLICIES.put("forgetting-wtinylfu", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .evictionPolicy(EvictionPolicy.windowTinyLfu(capacity))
+                .build()));
+        POLICIES.put("forgetting-slfu", capacity -> new ForgettingMapPolicy(ForgettingMap.<Long, Boolean>builder()
+                .capacity(capacity)
+                .evictionPolicy(EvictionPolicy.segmentedLfu(capacity, 10 * capacity))
+                .build()));
+        POLICIES.put("lru", capacity -> new LinkedHashMapPolicy(capacity, true));
+        POLICIES.put("fifo", capacity -> new LinkedHashMapPolicy(capacity, false));
+    }
+
+    private Policies() {
+    }
+
+    static Iterable<String> names() {
+        return POLICIES.keySet();
+    }
+
+    static Policy create(String name, int capacity) {
+        var factory = POLICIES.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("unknown policy " + name + ", expected one of " + POLICIES.keySet());
+        }
+        return factory.apply(capacity);
+    }
+
+    private static final class ForgettingMapPolicy implements Policy {
+        private final ForgettingMap<Long, Boolean> map;
+        private final Function<Long, Boolean> loader = key -> {
+            missed = true;
+            return Boolean.TRUE;
+        };
+        private boolean missed;
+        private long evictions;
+
+        ForgettingMapPolicy(ForgettingMap<Long, Boolean> map) {
+            this.map = map;
+            map.setEvictionListener((key, value) -> evictions++);
+        }
+
+        @Override
+        public boolean record(long key) {
+            missed = false;
+            map.computeIfAbsent(key, loader);
+            return !missed;
+        }
+
+        @Override
+        public long evictions() {
+            return evictions;
+        }
+    }
+
+    private static final class LinkedHashMapPolicy implements Policy {
+        private final int capacity;
+        private final LinkedHashMap<Long, Boolean> map;
+        private long evictions;
+
+        LinkedHashMapPolicy(int capacity, boolean accessOrder) {
+            this.capacity = capacity;
+            this.map = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, accessOrder) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    if (size() > LinkedHashMapPolicy.this.capacity) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public boolean record(long key) {
+            if (map.get(key) != null) {
+                return true;
+            }
+            map.put(key, Boolean.TRUE);
+            return false;
+        }
+
+        @Override
+        public long evictions() {
+            return evictions;
+        }
+    }
+}
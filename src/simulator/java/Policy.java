@@ -0,0 +1,13 @@
+/**
+ * A cache under simulation, holding keys only.  NOT thread-safe, the simulator replays on one thread.
+ */
+interface Policy {
+
+    /**
+     * Requests the key, adding it on a miss as a read-through cache would.
+     * @return true if it was already held
+     */
+    boolean record(long key);
+
+    long evictions();
+}
@@ -0,0 +1,142 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Notes :
+ * 1. Replays a key access trace through each policy at each capacity and reports hit ratio, evictions and throughput,
+ * so eviction changes can be judged offline against real workloads.
+ * 2. Usage: Simulator trace [-c capacity,...] [-p policy,...] [-o file]
+ * trace - a text or binary trace file, see Trace, or a synthetic trace, see SyntheticTraces
+ * -c - capacities to simulate, defaults to 1000
+ * -p - policies to simulate, see Policies, defaults to all of them
+ * -o - also write the trace in the binary format, e.g. to convert a text trace
+ * A missing trace, an unknown option, an option without a value or a capacity that is not a number prints the usage
+ * and exits with status 1.
+ * 3. Throughput is a single pass on one thread, warmed up by the policies run before it, so is only indicative.  See
+ * the JMH benchmarks for measurements that can be compared between builds.
+ */
+public class Simulator {
+
+    private static final String USAGE = "usage: Simulator trace [-c capacity,...] [-p policy,...] [-o file]";
+
+    public static void main(String[] args) throws IOException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        var trace = Trace.load(options.trace);
+        if (options.output != null) {
+            try (var out = new BufferedOutputStream(Files.newOutputStream(options.output), 1 << 16)) {
+                BinaryTrace.write(trace.keys(), out);
+            }
+        }
+        System.out.printf("%s: %,d accesses of %,d keys%n", trace.name(), trace.length(), trace.distinctKeys());
+        System.out.printf("%-26s %12s %10s %14s %14s%n", "policy", "capacity", "hit ratio", "evictions", "accesses/s");
+        for (int capacity : options.capacities) {
+            for (var policy : options.policies) {
+                var result = simulate(trace, policy, capacity);
+                System.out.printf("%-26s %,12d %9.2f%% %,14d %,14.0f%n", policy, result.capacity,
+                        100 * result.hitRatio(), result.evictions, result.throughput());
+            }
+        }
+    }
+
+    static Result simulate(Trace trace, String policyName, int capacity) {
+        var policy = Policies.create(policyName, capacity);
+        long hits = 0;
+        long start = System.nanoTime();
+        for (long key : trace.keys()) {
+            if (policy.record(key)) {
+                hits++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        return new Result(capacity, trace.length(), hits, policy.evictions(), nanos);
+    }
+
+    /**
+     * The command line, see note 2.
+     */
+    static final class Options {
+        final String trace;
+        final List<Integer> capacities;
+        final List<String> policies;
+        final Path output;
+
+        private Options(String trace, List<Integer> capacities, List<String> policies, Path output) {
+            this.trace = trace;
+            this.capacities = capacities;
+            this.policies = policies;
+            this.output = output;
+        }
+
+        /**
+         * @throws IllegalArgumentException - if the trace is missing, or an option is unknown or has no valid value
+         */
+        static Options parse(String[] args) {
+            if (args.length == 0) {
+                throw new IllegalArgumentException("no trace given");
+            }
+            List<Integer> capacities = List.of(1000);
+            List<String> policies = new ArrayList<>();
+            Policies.names().forEach(policies::add);
+            Path output = null;
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("option " + args[i] + " needs a value");
+                }
+                switch (args[i]) {
+                    case "-c":
+                        capacities = new ArrayList<>();
+                        for (var capacity : args[i + 1].split(",")) {
+                            capacities.add(Integer.parseInt(capacity));
+                        }
+                        break;
+                    case "-p":
+                        policies = List.of(args[i + 1].split(","));
+                        break;
+                    case "-o":
+                        output = Path.of(args[i + 1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown option " + args[i]);
+                }
+            }
+            return new Options(args[0], capacities, policies, output);
+        }
+    }
+
+    static final class Result {
+        private final int capacity;
+        private final long requests;
+        private final long hits;
+        private final long evictions;
+        private final long nanos;
+
+        Result(int capacity, long requests, long hits, long evictions, long nanos) {
+            this.capacity = capacity;
+            this.requests = requests;
+            this.hits = hits;
+            this.evictions = evictions;
+            this.nanos = nanos;
+        }
+
+        double hitRatio() {
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        double throughput() {
+            return nanos == 0 ? 0 : requests * 1e9 / nanos;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.SplittableRandom;
+
+/**
+ * Notes :
+ * 1. Generated workloads, given on the command line in place of a trace file:
+ * zipf:items:length[:exponent] - skewed popularity, the typical cache workload, exponent defaults to 1
+ * scan:items:length - a Zipf hot set over items, interrupted after every 4 x items accesses by a scan of items keys
+ * that are never requested again, the case TinyLFU admission is meant to protect against
+ * loop:items:length - items keys requested in a fixed cycle, the worst case for LRU once items exceed capacity
+ * 2. Seeded, so every run of the same spec produces the same trace.
+ */
+final class SyntheticTraces {
+
+    private static final long SEED = 42;
+
+    private SyntheticTraces() {
+    }
+
+    /**
+     * @return the generated trace, null if the spec is not a synthetic trace
+     */
+    static Trace parse(String spec) {
+        var parts = spec.split(":");
+        if (parts.length < 3) {
+            return null;
+        }
+        int items = Integer.parseInt(parts[1]);
+        int length = Integer.parseInt(parts[2]);
+        switch (parts[0]) {
+            case "zipf":
+                return new Trace(spec, zipf(items, length, parts.length > 3 ? Double.parseDouble(parts[3]) : 1.0));
+            case "scan":
+                return new Trace(spec, scan(items, length));
+            case "loop":
+                return new Trace(spec, loop(items, length));
+            default:
+                return null;
+        }
+    }
+
+    static long[] zipf(int items, int length, double exponent) {
+        var zipf = new Zipf(items, exponent);
+        var random = new SplittableRandom(SEED);
+        var keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = zipf.sample(random);
+        }
+        return keys;
+    }
+
+    static long[] scan(int items, int length) {
+        var zipf = new Zipf(items, 1.0);
+        var random = new SplittableRandom(SEED);
+        var keys = new long[length];
+        long nextScanKey = items;
+        int phase = 0;
+        for (int i = 0; i < length; i++, phase++) {
+            if (phase >= 4 * items) {
+                keys[i] = nextScanKey++;
+                if (phase == 5 * items - 1) {
+                    phase = -1;
+                }
+            } else {
+                keys[i] = zipf.sample(random);
+            }
+        }
+        return keys;
+    }
+
+    static long[] loop(int items, int length) {
+        var keys = new long[length];
+        for (int i = 0; i < length; i++) {
+            keys[i] = i % items;
+        }
+        return keys;
+    }
+
+    /**
+     * Rejection-inversion sampler (Hormann and Derflinger), needs no table so scales to any number of items.  Ranks
+     * are scattered over the key space, so the most popular keys are not simply the lowest.
+     */
+    private static final class Zipf {
+        private final int items;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralItems;
+        private final double s;
+
+        Zipf(int items, double exponent) {
+            this.items = items;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralItems = hIntegral(items + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        long sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralItems + random.nextDouble() * (hIntegralX1 - hIntegralItems);
+                double x = hIntegralInverse(u);
+                int k = Math.max(1, Math.min(items, (int) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return ((k * 0x9E3779B97F4A7C15L) >>> 1) % items;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(helper1(t) * x);
+        }
+
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Notes :
+ * 1. A sequence of key accesses, loaded into memory once so every policy replays exactly the same requests and the
+ * replay measures the policy, not the parsing.  8 bytes per access.
+ * 2. Files are read as BinaryTrace if they start with its magic, otherwise as text, either optionally gzipped.
+ * 3. Text traces hold one access per line, the key being the first whitespace separated token.  Numeric keys are used
+ * as they are, anything else is hashed to 64 bits.  Blank lines and lines starting with # are skipped.
+ */
+final class Trace {
+
+    private final String name;
+    private final long[] keys;
+
+    Trace(String name, long[] keys) {
+        this.name = name;
+        this.keys = keys;
+    }
+
+    String name() {
+        return name;
+    }
+
+    long[] keys() {
+        return keys;
+    }
+
+    int length() {
+        return keys.length;
+    }
+
+    long distinctKeys() {
+        var sorted = keys.clone();
+        Arrays.sort(sorted);
+        long distinct = sorted.length == 0 ? 0 : 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * @param spec - a trace file, or a synthetic trace, see SyntheticTraces#parse
+     */
+    static Trace load(String spec) throws IOException {
+        var synthetic = SyntheticTraces.parse(spec);
+        return synthetic != null ? synthetic : read(Path.of(spec));
+    }
+
+    static Trace read(Path path) throws IOException {
+        try (var in = open(path)) {
+            var name = path.getFileName().toString();
+            return BinaryTrace.hasMagic(in) ? new Trace(name, BinaryTrace.read(in)) : new Trace(name, readText(in));
+        }
+    }
+
+    private static InputStream open(Path path) throws IOException {
+        var in = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        in.mark(2);
+        boolean gzipped = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        return gzipped ? new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16) : in;
+    }
+
+    private static long[] readText(InputStream in) throws IOException {
+        var keys = new KeyBuffer();
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        for (String line; (line = reader.readLine()) != null; ) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int end = 0;
+            while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+                end++;
+            }
+            keys.add(toKey(line.substring(0, end)));
+        }
+        return keys.toArray();
+    }
+
+    private static long toKey(String token) {
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            // FNV-1a, wide enough that distinct keys of a realistic trace do not collide
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < token.length(); i++) {
+                hash = (hash ^ token.charAt(i)) * 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Growable array of keys, avoiding a boxed list for traces of hundreds of millions of accesses.
+     */
+    static final class KeyBuffer {
+        private long[] keys = new long[1024];
+        private int size;
+
+        void add(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            keys[size++] = key;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(keys, size);
+        }
+    }
+}
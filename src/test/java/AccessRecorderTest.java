@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("every full batch of sampled gets and puts is written to the gzipped trace, in order per thread")
+    void testRecordsOperations() throws IOException {
+
+        //given
+        var file = directory.resolve("access.trace");
+        var recorder = AccessRecorder.builder().file(file).samplingRate(1).batchSize(4).build();
+        var map = ForgettingMap.<Integer, String>builder().capacity(4).accessRecorder(recorder).build();
+
+        //when
+        map.put(1, "foo");
+        map.get(1);
+        map.get(2);
+        map.put(3, "bar");
+        map.get(3);
+        recorder.close();
+
+        //then
+        assertEquals(4, recorder.writtenCount());
+        assertEquals(List.of(
+                List.of(1L, (long) AccessRecorder.PUT),
+                List.of(1L, (long) (AccessRecorder.GET | AccessRecorder.HIT)),
+                List.of(2L, (long) AccessRecorder.GET),
+                List.of(3L, (long) AccessRecorder.PUT)), read(file));
+    }
+
+    @Test
+    @DisplayName("keys are sampled by hash, so a sampled key has every access recorded")
+    void testSamplesByKey() throws IOException {
+
+        //given
+        var file = directory.resolve("sampled.trace");
+        var recorder = AccessRecorder.builder()
+                .file(file)
+                .samplingRate(0.25)
+                .batchSize(1)
+                .maxPendingBatches(10_000)
+                .build();
+        var map = ForgettingMap.<Integer, String>builder().capacity(1000).accessRecorder(recorder).build();
+
+        //when
+        IntStream.range(0, 3).forEach(round -> IntStream.range(0, 1000).forEach(map::get));
+        recorder.close();
+
+        //then
+        assertEquals(0, recorder.droppedCount());
+        var records = read(file);
+        var keys = records.stream().map(record -> record.get(0)).distinct().count();
+        assertTrue(keys > 150 && keys < 350, "sampled " + keys);
+        assertEquals(3 * keys, records.size());
+    }
+
+    /**
+     * @return key and flags of each record
+     */
+    private static List<List<Long>> read(Path file) throws IOException {
+        try (var in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            var header = in.readNBytes(5);
+            assertArrayEquals(new byte[]{'F', 'M', 'T', 'R', AccessRecorder.VERSION}, header);
+            var records = new ArrayList<List<Long>>();
+            long key = 0;
+            for (int b; (b = in.read()) != -1; ) {
+                key += readZigzag(in, b);
+                readZigzag(in, in.read());
+                records.add(List.of(key, (long) in.read()));
+            }
+            return records;
+        }
+    }
+
+    private static long readZigzag(DataInputStream in, int b) throws IOException {
+        long zigzag = b & 0x7f;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = in.read();
+            zigzag |= (long) (b & 0x7f) << shift;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
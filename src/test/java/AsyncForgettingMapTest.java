@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncForgettingMapTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private CompletableFuture<String> pending = new CompletableFuture<>();
+    private final AsyncForgettingMap<String, String> map = new AsyncForgettingMap<>(4, key -> {
+        loads.incrementAndGet();
+        return pending;
+    });
+
+    @Test
+    @DisplayName("callers of a loading key share the in-flight future, which then stays in the map")
+    void testSharedInFlightFuture() {
+
+        //given
+        var first = map.get("foo");
+
+        //when
+        var second = map.get("foo");
+        pending.complete("bar");
+
+        //then
+        assertSame(first, second);
+        assertEquals("bar", map.get("foo").join());
+        assertEquals(1, loads.get());
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("a future that fails is removed, so the next get loads again")
+    void testFailedFutureRemoved() {
+
+        //given
+        var failed = map.get("foo");
+
+        //when
+        failed.completeExceptionally(new IllegalStateException("backend down"));
+
+        //then
+        assertEquals(0, map.size());
+        assertNull(map.getIfPresent("foo"));
+        pending = CompletableFuture.completedFuture("bar");
+        assertEquals("bar", map.get("foo").join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("a loader that throws, or a future already failed when added, never occupies a slot")
+    void testAlreadyFailed() {
+        var throwing = new AsyncForgettingMap<String, String>(4, key -> {
+            throw new IllegalStateException("backend down");
+        });
+
+        assertThrows(CompletionException.class, () -> throwing.get("foo").join());
+        assertEquals(0, throwing.size());
+
+        map.put("bar", CompletableFuture.failedFuture(new IllegalStateException("backend down")));
+        map.put("baz", CompletableFuture.completedFuture(null));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    @DisplayName("a late failure of a replaced future does not remove its replacement")
+    void testFailureOfReplacedFuture() {
+
+        //given
+        var replaced = new CompletableFuture<String>();
+        map.put("foo", replaced);
+        map.put("foo", CompletableFuture.completedFuture("bar"));
+
+        //when
+        replaced.completeExceptionally(new IllegalStateException("backend down"));
+
+        //then
+        assertEquals("bar", map.getIfPresent("foo").join());
+    }
+}
@@ -0,0 +1,323 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentForgettingMapTest {
+
+    private final ConcurrentForgettingMap<String, String> map = new ConcurrentForgettingMap<>(4, 1,
+            capacity -> new ForgettingMap<>(capacity,
+                    (o1, o2) -> Comparator.<String>naturalOrder().compare(o1.getValue(), o2.getValue())));
+
+    @Test
+    @DisplayName("get returns null if key is never set, and the value once it is")
+    void testGetAndPut() {
+        assertNull(map.get("foo"));
+        map.put("foo", "bar");
+        assertEquals("bar", map.get("foo"));
+        assertEquals("bar", map.put("foo", "baz"));
+    }
+
+    @Test
+    @DisplayName("with a single segment, eviction matches ForgettingMap")
+    void testEvictionAtCapacity() {
+
+        //given
+        map.put("foo1", "bar1");
+        map.put("foo2", "bar2");
+        map.put("foo3", "bar3");
+        map.put("lowest", "bar4");
+        IntStream.range(1, 5).forEach(i -> map.get("foo1"));
+        IntStream.range(1, 4).forEach(i -> map.get("foo2"));
+        IntStream.range(1, 3).forEach(i -> map.get("foo3"));
+        IntStream.range(1, 2).forEach(i -> map.get("lowest"));
+
+        //when
+        map.put("foo5", "bar5");
+
+        //then
+        assertEquals(4, map.size());
+        assertNull(map.get("lowest"));
+    }
+
+    @Test
+    @DisplayName("capacity is shared between segments and never exceeded")
+    void testCapacityAcrossSegments() {
+        var striped = new ConcurrentForgettingMap<Integer, Integer>(100, 8,
+                capacity -> new ForgettingMap<>(capacity, Comparator.comparing(e -> e.getKey())));
+        IntStream.range(0, 1000).forEach(i -> striped.put(i, i));
+        assertTrue(striped.size() <= 100);
+        assertTrue(striped.size() > 0);
+    }
+
+    @Test
+    @DisplayName("concurrent gets and puts from many threads keep the map within capacity")
+    void testConcurrentAccess() throws Exception {
+        var striped = new ConcurrentForgettingMap<Integer, Integer>(1000,
+                (o1, o2) -> Comparator.<Integer>naturalOrder().compare(o1.getKey(), o2.getKey()));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            var futures = IntStream.range(0, 8)
+                    .mapToObj(t -> executor.submit(() -> IntStream.range(0, 10_000).forEach(i -> {
+                        int key = (i * 31 + t) % 2000;
+                        if (striped.get(key) == null) {
+                            striped.put(key, key);
+                        }
+                    })))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(striped.size() <= 1000);
+        IntStream.range(0, 2000).forEach(i -> {
+            var value = striped.get(i);
+            assertTrue(value == null || value == i);
+        });
+    }
+
+    @Test
+    @DisplayName("with buffered reads, fetches recorded without the lock still decide which key is evicted")
+    void testBufferedReadsDriveEviction() {
+
+        //given
+        var buffered = new ConcurrentForgettingMap<String, String>(4, 1, true,
+                capacity -> new ForgettingMap<>(capacity,
+                        (o1, o2) -> Comparator.<String>naturalOrder().compare(o1.getValue(), o2.getValue())));
+        buffered.put("foo1", "bar1");
+        buffered.put("foo2", "bar2");
+        buffered.put("foo3", "bar3");
+        buffered.put("lowest", "bar4");
+        IntStream.range(1, 5).forEach(i -> assertEquals("bar1", buffered.get("foo1")));
+        IntStream.range(1, 4).forEach(i -> assertEquals("bar2", buffered.get("foo2")));
+        IntStream.range(1, 3).forEach(i -> assertEquals("bar3", buffered.get("foo3")));
+        assertEquals("bar4", buffered.get("lowest"));
+
+        //when
+        buffered.put("foo5", "bar5");
+        buffered.get("foo5");
+        buffered.put("foo6", "bar6");
+
+        //then
+        assertEquals(4, buffered.size());
+        assertNull(buffered.get("lowest"));
+        assertNull(buffered.get("foo5"));
+        assertEquals("bar1", buffered.get("foo1"));
+        assertEquals("bar6", buffered.get("foo6"));
+    }
+
+    @Test
+    @DisplayName("with buffered reads, concurrent hot key reads and writes keep the map within capacity")
+    void testBufferedConcurrentAccess() throws Exception {
+        var buffered = new ConcurrentForgettingMap<Integer, Integer>(500, 4, true,
+                capacity -> new ForgettingMap<>(capacity, Comparator.comparing(e -> e.getKey())));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            var futures = IntStream.range(0, 8)
+                    .mapToObj(t -> executor.submit(() -> IntStream.range(0, 20_000).forEach(i -> {
+                        int key = i % 10 == 0 ? (i * 31 + t) % 2000 : i % 7;
+                        if (buffered.get(key) == null) {
+                            buffered.put(key, key);
+                        }
+                    })))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(buffered.size() <= 500);
+        IntStream.range(0, 7).forEach(i -> assertEquals(i, buffered.get(i)));
+    }
+
+    @Test
+    @DisplayName("a stats counter shared by every segment counts activity across the whole map, including buffered reads")
+    void testSharedStats() {
+        var stats = new ConcurrentStatsCounter();
+        var buffered = new ConcurrentForgettingMap<Integer, Integer>(100, 4, true,
+                capacity -> ForgettingMap.<Integer, Integer>builder().capacity(capacity).statsCounter(stats).build());
+
+        IntStream.range(0, 200).forEach(i -> buffered.put(i, i));
+        IntStream.range(0, 200).forEach(buffered::get);
+
+        var snapshot = stats.snapshot();
+        assertEquals(200, snapshot.getPutCount());
+        assertEquals(100, snapshot.getEvictionCount());
+        assertEquals(100, snapshot.getHitCount());
+        assertEquals(100, snapshot.getMissCount());
+    }
+
+    @Test
+    @DisplayName("with buffered reads, a lock-free get never returns an expired value, and fetches keep an idle entry alive")
+    void testBufferedReadsRespectExpiry() {
+
+        //given
+        var time = new AtomicLong();
+        var buffered = new ConcurrentForgettingMap<String, String>(4, 1, true,
+                capacity -> ForgettingMap.<String, String>builder()
+                        .capacity(capacity)
+                        .expireAfterAccess(Duration.ofSeconds(10))
+                        .ticker(time::get)
+                        .build());
+        buffered.put("fetched", "bar");
+        buffered.put("idle", "baz");
+        buffered.put("short", "qux", Duration.ofSeconds(1));
+
+        //when
+        IntStream.range(0, 5).forEach(i -> {
+            time.addAndGet(Duration.ofSeconds(4).toNanos());
+            assertEquals("bar", buffered.get("fetched"));
+        });
+
+        //then
+        assertNull(buffered.get("idle"));
+        assertNull(buffered.get("short"));
+        assertEquals(1, buffered.size());
+    }
+
+    @Test
+    @DisplayName("concurrent computeIfAbsent misses on the same key share a single load")
+    void testSingleFlightLoad() throws Exception {
+
+        //given
+        var loading = new ConcurrentForgettingMap<String, String>(100);
+        var loads = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        //when
+        try {
+            var futures = IntStream.range(0, 16)
+                    .mapToObj(t -> executor.submit(() -> loading.computeIfAbsent("hot", key -> {
+                        loads.incrementAndGet();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return "value";
+                    })))
+                    .collect(Collectors.toList());
+            Thread.sleep(100);
+            release.countDown();
+
+            //then
+            for (Future<String> future : futures) {
+                assertEquals("value", future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, loads.get());
+        assertEquals("value", loading.get("hot"));
+    }
+
+    @Test
+    @DisplayName("a put made while a computeIfAbsent load runs is kept, and returned in place of the loaded value")
+    void testPutDuringLoad() throws Exception {
+        for (boolean bufferedReads : new boolean[]{false, true}) {
+
+            //given
+            var loading = new ConcurrentForgettingMap<String, String>(4, 1, bufferedReads, ForgettingMap::new);
+            var started = new CountDownLatch(1);
+            var release = new CountDownLatch(1);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+
+            //when
+            try {
+                var loaded = executor.submit(() -> loading.computeIfAbsent("foo", key -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return "loaded";
+                }));
+                assertTrue(started.await(30, TimeUnit.SECONDS));
+                loading.put("foo", "put");
+                release.countDown();
+
+                //then
+                assertEquals("put", loaded.get(30, TimeUnit.SECONDS));
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals("put", loading.get("foo"));
+        }
+    }
+
+    @Test
+    @DisplayName("a failed load is rethrown and not remembered, so the next computeIfAbsent loads again")
+    void testFailedLoadRetried() {
+        var buffered = new ConcurrentForgettingMap<String, String>(4, 1, true, ForgettingMap::new);
+
+        assertThrows(IllegalStateException.class, () -> buffered.computeIfAbsent("foo", key -> {
+            throw new IllegalStateException("backend down");
+        }));
+
+        assertEquals("bar", buffered.computeIfAbsent("foo", key -> "bar"));
+        assertEquals("bar", buffered.get("foo"));
+    }
+
+    @Test
+    @DisplayName("loading a key from within its own load fails rather than deadlocking")
+    void testRecursiveLoad() {
+        assertThrows(IllegalStateException.class,
+                () -> map.computeIfAbsent("foo", key -> map.computeIfAbsent("foo", k -> "bar")));
+    }
+
+    @Test
+    @DisplayName("bulk operations across segments, locked and buffered, match the single-key results")
+    void testBulkAcrossSegments() {
+        for (boolean bufferedReads : new boolean[]{false, true}) {
+
+            //given
+            var striped = new ConcurrentForgettingMap<Integer, Integer>(1000, 8, bufferedReads, ForgettingMap::new);
+            var batch = IntStream.range(0, 500).boxed().collect(Collectors.toMap(i -> i, i -> i * 2));
+
+            //when
+            striped.putAll(batch);
+            var results = striped.getAll(IntStream.range(0, 600).boxed().collect(Collectors.toList()), new HashMap<>());
+
+            //then
+            assertEquals(batch, results);
+            assertEquals(500, striped.size());
+        }
+    }
+
+    @Test
+    @DisplayName("setMaximumSize splits the new bound between segments, each shrinking as it is used")
+    void testSetMaximumSize() {
+
+        //given
+        var striped = new ConcurrentForgettingMap<Integer, Integer>(1000, 8, true, ForgettingMap::new);
+        IntStream.range(0, 1000).forEach(i -> striped.put(i, i));
+
+        //when
+        striped.setMaximumSize(100);
+        IntStream.range(0, 20).forEach(round -> IntStream.range(1000, 1100).forEach(i -> striped.put(i, i)));
+
+        //then
+        assertTrue(striped.size() <= 100);
+        assertTrue(striped.size() > 50);
+    }
+}
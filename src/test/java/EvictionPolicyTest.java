@@ -0,0 +1,243 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvictionPolicyTest {
+
+    private static ForgettingMap<Integer, Integer> mapWith(int capacity, EvictionPolicy<Integer, Integer> policy) {
+        return ForgettingMap.<Integer, Integer>builder().capacity(capacity).evictionPolicy(policy).build();
+    }
+
+    @Test
+    @DisplayName("lru evicts the key added or fetched least recently, however often it was fetched")
+    void testLru() {
+
+        //given
+        var map = mapWith(3, EvictionPolicy.lru());
+        IntStream.range(0, 3).forEach(i -> map.put(i, i));
+        IntStream.range(0, 5).forEach(i -> map.get(0));
+        map.get(1);
+
+        //when
+        map.put(3, 3);
+
+        //then
+        assertNull(map.get(2));
+        assertEquals(0, map.get(0));
+        assertEquals(1, map.get(1));
+    }
+
+    @Test
+    @DisplayName("clock gives a fetched key a second chance, and evicts the first unfetched key the hand reaches")
+    void testClock() {
+
+        //given
+        var map = mapWith(3, EvictionPolicy.clock());
+        IntStream.range(0, 3).forEach(i -> map.put(i, i));
+        map.get(0);
+
+        //when
+        map.put(3, 3);
+        map.put(4, 4);
+
+        //then
+        assertEquals(0, map.get(0));
+        assertNull(map.get(1));
+        assertNull(map.get(2));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    @DisplayName("arc keeps keys fetched twice through a scan of keys fetched once, and bounds the evicted keys it remembers")
+    void testArcScanResistance() {
+
+        //given
+        var policy = new ArcPolicy<Integer, Integer>(10);
+        var map = mapWith(10, policy);
+        IntStream.range(0, 5).forEach(i -> map.put(i, i));
+        IntStream.range(0, 5).forEach(map::get);
+
+        //when
+        IntStream.range(100, 1000).forEach(i -> map.put(i, i));
+
+        //then
+        IntStream.range(0, 5).forEach(i -> assertEquals(i, map.get(i)));
+        assertEquals(10, map.size());
+        assertTrue(policy.ghostCount() <= 20);
+    }
+
+    @Test
+    @DisplayName("arc moves a key evicted and soon put again to the frequent list, where it outlives newer keys")
+    void testArcGhostHit() {
+
+        //given
+        var map = mapWith(4, EvictionPolicy.arc(4));
+        map.put(1, 1);
+        map.put(2, 2);
+        map.get(1);
+        IntStream.rangeClosed(3, 5).forEach(i -> map.put(i, i));
+        assertFalse(map.containsKey(2));
+
+        //when
+        map.put(2, 2);
+        IntStream.rangeClosed(6, 9).forEach(i -> map.put(i, i));
+
+        //then
+        assertEquals(2, map.get(2));
+        assertEquals(1, map.get(1));
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    @DisplayName("arc does not remember a victim kept when admission turns away the new key, if it is removed later")
+    void testArcGhostsOnlyEvictions() {
+
+        //given
+        var policy = new ArcPolicy<Integer, Integer>(2);
+        var map = ForgettingMap.<Integer, Integer>builder().capacity(2).evictionPolicy(policy)
+                .tinyLfuAdmission(true).build();
+        map.put(1, 1);
+        map.put(2, 2);
+        IntStream.range(0, 3).forEach(i -> {
+            map.get(1);
+            map.get(2);
+        });
+        map.put(3, 3);
+        assertFalse(map.containsKey(3));
+
+        //when
+        map.remove(1);
+        map.remove(2);
+
+        //then
+        assertEquals(0, policy.ghostCount());
+    }
+
+    @Test
+    @DisplayName("window tinylfu keeps frequently fetched keys through a scan, and a briefly hot new key through a burst")
+    void testWindowTinyLfu() {
+
+        //given
+        var map = mapWith(100, EvictionPolicy.windowTinyLfu(100));
+        IntStream.range(0, 100).forEach(i -> map.put(i, i));
+        IntStream.range(0, 3).forEach(round -> IntStream.range(0, 50).forEach(map::get));
+
+        //when
+        IntStream.range(1000, 5000).forEach(i -> map.put(i, i));
+        map.put(-1, -1);
+        map.get(-1);
+        map.get(-1);
+        IntStream.range(5000, 5100).forEach(i -> map.put(i, i));
+
+        //then
+        IntStream.range(0, 50).forEach(i -> assertEquals(i, map.get(i)));
+        assertEquals(-1, map.get(-1));
+        assertEquals(100, map.size());
+    }
+
+    @Test
+    @DisplayName("segmented lfu keeps keys fetched twice through a scan, while keys fetched once cycle out with it")
+    void testSegmentedLfuScanResistance() {
+
+        //given
+        var map = mapWith(10, EvictionPolicy.segmentedLfu(10, 0));
+        IntStream.range(0, 10).forEach(i -> map.put(i, i));
+        IntStream.range(0, 2).forEach(round -> IntStream.range(0, 8).forEach(map::get));
+        map.get(8);
+
+        //when
+        IntStream.range(100, 1000).forEach(i -> map.put(i, i));
+
+        //then
+        IntStream.range(0, 8).forEach(i -> assertEquals(i, map.get(i)));
+        assertFalse(map.containsKey(8));
+        assertFalse(map.containsKey(9));
+        assertEquals(10, map.size());
+    }
+
+    @Test
+    @DisplayName("segmented lfu demotes the least fetched protected key to probation when promoting into a full segment")
+    void testSegmentedLfuDemotion() {
+
+        //given
+        var map = mapWith(5, EvictionPolicy.segmentedLfu(5, 0));
+        IntStream.range(0, 5).forEach(i -> map.put(i, i));
+        IntStream.range(0, 3).forEach(round -> IntStream.range(0, 4).forEach(map::get));
+        map.get(0);
+
+        //when
+        map.get(4);
+        map.get(4);
+        map.put(5, 5);
+        map.put(6, 6);
+
+        //then
+        assertFalse(map.containsKey(1));
+        assertTrue(map.containsKey(0));
+        assertTrue(map.containsKey(4));
+    }
+
+    @Test
+    @DisplayName("every policy keeps the map within capacity and consistent under random gets, removes and puts, with and without a time to live")
+    void testRandomWorkload() {
+        List<IntFunction<EvictionPolicy<Integer, Integer>>> policies = List.of(
+                capacity -> EvictionPolicy.lfu(), capacity -> EvictionPolicy.lru(),
+                capacity -> EvictionPolicy.clock(), EvictionPolicy::arc, EvictionPolicy::windowTinyLfu,
+                capacity -> EvictionPolicy.segmentedLfu(capacity, 100));
+        for (var policy : policies) {
+
+            //given
+            var map = mapWith(50, policy.apply(50));
+            var expected = new HashMap<Integer, Integer>();
+            map.setEvictionListener((key, value) -> assertEquals(value, expected.remove(key)));
+            var random = new Random(42);
+
+            //when
+            for (int i = 0; i < 20_000; i++) {
+                int key = random.nextInt(200);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        assertEquals(expected.remove(key), map.remove(key));
+                        break;
+                    case 1:
+                        assertEquals(expected.get(key), map.get(key));
+                        break;
+                    default:
+                        expected.put(key, i);
+                        if (i < 10_000) {
+                            map.put(key, i);
+                        } else {
+                            // the first put with a time to live gives the map a timer wheel, and swaps each plain
+                            // node put again for one that can expire
+                            map.put(key, i, Duration.ofDays(1));
+                        }
+                }
+
+                //then
+                assertTrue(map.size() <= 50);
+                assertEquals(expected.size(), map.size());
+            }
+            for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), map.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("a tie-breaking comparator or aging cannot be combined with another policy")
+    void testLfuSettingsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ForgettingMap.<Integer, Integer>builder()
+                .capacity(4).agingPeriod(10).evictionPolicy(EvictionPolicy.lru()).build());
+        assertThrows(IllegalArgumentException.class, () -> ForgettingMap.<Integer, Integer>builder()
+                .capacity(4).tieBreakingComparator(Map.Entry.comparingByKey()).evictionPolicy(EvictionPolicy.lru()).build());
+    }
+}
@@ -1,8 +1,17 @@
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -160,6 +169,786 @@ class ForgettingMapTest {
         assertNull(map.get("foo5"));
     }
 
+    @Test
+    @DisplayName("with a larger capacity, each eviction removes the key with the fewest fetches")
+    void testEvictionOrderFollowsFetchCounts() {
+
+        //given
+        var large = new ForgettingMap<Integer, Integer>(100,
+                (o1, o2) -> Comparator.<Integer>naturalOrder().compare(o1.getKey(), o2.getKey()));
+        IntStream.range(0, 100).forEach(i -> large.put(i, i));
+        IntStream.range(0, 100).forEach(i -> IntStream.range(0, 100 - i).forEach(j -> large.get(i)));
+
+        //when
+        IntStream.range(100, 110).forEach(i -> {
+            large.put(i, i);
+            IntStream.range(0, 200).forEach(j -> large.get(i));
+        });
+
+        //then
+        assertEquals(100, large.size());
+        IntStream.range(90, 100).forEach(i -> assertNull(large.get(i)));
+        IntStream.range(0, 90).forEach(i -> assertEquals(i, large.get(i)));
+    }
+
+    @Test
+    @DisplayName("with tinyLfu admission, at capacity a key requested less often than the victim is not added")
+    void testAdmissionRejectsColdKey() {
+
+        //given
+        var admitting = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .tieBreakingComparator((o1, o2) -> Comparator.<String>naturalOrder().compare(o1.getValue(), o2.getValue()))
+                .tinyLfuAdmission(true)
+                .build();
+        IntStream.range(1, 5).forEach(i -> {
+            admitting.put("foo" + i, "bar" + i);
+            admitting.get("foo" + i);
+        });
+
+        //when
+        admitting.put("foo5", "bar5");
+
+        //then
+        assertEquals(4, admitting.size());
+        assertFalse(admitting.containsKey("foo5"));
+        assertEquals("bar1", admitting.get("foo1"));
+    }
+
+    @Test
+    @DisplayName("with tinyLfu admission, a key requested more often than the victim replaces it")
+    void testAdmissionAcceptsHotKey() {
+
+        //given
+        var admitting = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .tieBreakingComparator((o1, o2) -> Comparator.<String>naturalOrder().compare(o1.getValue(), o2.getValue()))
+                .tinyLfuAdmission(true)
+                .build();
+        IntStream.range(1, 5).forEach(i -> {
+            admitting.put("foo" + i, "bar" + i);
+            admitting.get("foo" + i);
+        });
+        IntStream.range(0, 3).forEach(i -> assertNull(admitting.get("foo5")));
+
+        //when
+        admitting.put("foo5", "bar5");
+
+        //then
+        assertEquals(4, admitting.size());
+        assertEquals("bar5", admitting.get("foo5"));
+        assertFalse(admitting.containsKey("foo1"));
+    }
+
+    @Test
+    @DisplayName("with aging, a key fetched heavily in the past is evicted once newer keys are fetched more recently")
+    void testAgingMakesStaleKeysEvictable() {
+
+        //given
+        var aging = ForgettingMap.<String, String>builder()
+                .capacity(3)
+                .tieBreakingComparator((o1, o2) -> Comparator.<String>naturalOrder().compare(o1.getValue(), o2.getValue()))
+                .agingPeriod(10)
+                .build();
+        var notAging = new ForgettingMap<String, String>(3,
+                (o1, o2) -> Comparator.<String>naturalOrder().compare(o1.getValue(), o2.getValue()));
+        for (var candidate : List.of(aging, notAging)) {
+            candidate.put("stale", "bar1");
+            IntStream.range(0, 200).forEach(i -> candidate.get("stale"));
+            candidate.put("foo2", "bar2");
+            candidate.put("foo3", "bar3");
+            IntStream.range(0, 50).forEach(i -> {
+                candidate.get("foo2");
+                candidate.get("foo3");
+            });
+        }
+
+        //when
+        aging.put("foo4", "bar4");
+        notAging.put("foo4", "bar4");
+
+        //then
+        assertNull(aging.get("stale"));
+        assertEquals("bar2", aging.get("foo2"));
+        assertEquals("bar3", aging.get("foo3"));
+        assertEquals("bar1", notAging.get("stale"));
+    }
+
+    @Test
+    @DisplayName("with aging, a random mix of gets and puts keeps the map within capacity and returns the latest values")
+    void testAgingWithRandomOperations() {
+        var aging = ForgettingMap.<Integer, Integer>builder()
+                .capacity(50)
+                .tieBreakingComparator(Comparator.comparing(e -> e.getKey()))
+                .agingPeriod(7)
+                .build();
+        var random = new Random(42);
+        var latest = new HashMap<Integer, Integer>();
+
+        IntStream.range(0, 100_000).forEach(i -> {
+            int key = (int) Math.abs(random.nextGaussian() * 40);
+            if (random.nextInt(4) == 0) {
+                aging.put(key, i);
+                latest.put(key, i);
+            } else {
+                var value = aging.get(key);
+                assertTrue(value == null || value.equals(latest.get(key)));
+            }
+            assertTrue(aging.size() <= 50);
+        });
+    }
+
+    @Test
+    @DisplayName("a key comparator breaks ties on keys, and cannot modify the entries it is given")
+    void testKeyTieBreaker() {
+
+        //given
+        var byKey = new ForgettingMap<String, String>(2, Map.Entry.<String, String>comparingByKey().reversed());
+        var mutating = new ForgettingMap<String, String>(2, (o1, o2) -> o1.setValue("changed").compareTo(o2.getValue()));
+        for (var candidate : List.of(byKey, mutating)) {
+            candidate.put("a", "bar1");
+            candidate.put("b", "bar2");
+            candidate.get("a");
+            candidate.get("b");
+        }
+
+        //when
+        byKey.put("c", "bar3");
+
+        //then
+        assertNull(byKey.get("b"));
+        assertEquals("bar1", byKey.get("a"));
+        assertThrows(UnsupportedOperationException.class, () -> mutating.put("c", "bar3"));
+    }
+
+    @Test
+    @DisplayName("without a comparator, an unfetched newly added key is not preferred for eviction, the oldest is")
+    void testSequenceTieBreakKeepsNewKeys() {
+
+        //given
+        var oldestFirst = new ForgettingMap<String, String>(4);
+        oldestFirst.put("foo1", "bar1");
+        oldestFirst.put("foo2", "bar2");
+        oldestFirst.put("foo3", "bar3");
+        oldestFirst.put("foo4", "bar4");
+        oldestFirst.put("foo5", "bar5");
+
+        //when
+        oldestFirst.put("foo6", "bar6");
+
+        //then
+        assertEquals(4, oldestFirst.size());
+        assertFalse(oldestFirst.containsKey("foo1"));
+        assertFalse(oldestFirst.containsKey("foo2"));
+        assertEquals("bar5", oldestFirst.get("foo5"));
+    }
+
+    @Test
+    @DisplayName("without a comparator, ties between fetched keys evict the one fetched longest ago")
+    void testSequenceTieBreakOnFetchOrder() {
+
+        //given
+        var oldestFirst = new ForgettingMap<String, String>(4);
+        oldestFirst.put("foo1", "bar1");
+        oldestFirst.put("foo2", "bar2");
+        oldestFirst.put("foo3", "bar3");
+        oldestFirst.put("foo4", "bar4");
+        oldestFirst.get("foo3");
+        oldestFirst.get("foo1");
+        oldestFirst.get("foo4");
+        oldestFirst.get("foo2");
+
+        //when
+        oldestFirst.put("foo5", "bar5");
+        oldestFirst.get("foo5");
+        oldestFirst.put("foo6", "bar6");
+
+        //then
+        assertFalse(oldestFirst.containsKey("foo3"));
+        assertFalse(oldestFirst.containsKey("foo1"));
+        assertEquals("bar5", oldestFirst.get("foo5"));
+        assertEquals("bar6", oldestFirst.get("foo6"));
+    }
+
+    @Test
+    @DisplayName("keys with colliding hash codes can be added, found and evicted")
+    void testCollidingHashCodes() {
+
+        //given
+        var colliding = new ForgettingMap<CollidingKey, Integer>(16);
+        var latest = new HashMap<CollidingKey, Integer>();
+        var random = new Random(7);
+
+        //when
+        IntStream.range(0, 10_000).forEach(i -> {
+            var key = new CollidingKey(random.nextInt(40));
+            if (random.nextBoolean()) {
+                colliding.put(key, i);
+                latest.put(key, i);
+            } else {
+                var value = colliding.get(key);
+                assertTrue(value == null || value.equals(latest.get(key)));
+            }
+        });
+
+        //then
+        assertEquals(16, colliding.size());
+        assertEquals(16, latest.keySet().stream().filter(colliding::containsKey).count());
+    }
+
+    private static class CollidingKey {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 4;
+        }
+    }
+
+    @Test
+    @DisplayName("with a stats counter, hits, misses, puts, replacements, evictions and eviction scans are counted")
+    void testStats() {
+
+        //given
+        var counted = ForgettingMap.<String, String>builder()
+                .capacity(2)
+                .tieBreakingComparator(Map.Entry.comparingByKey())
+                .statsCounter(new ConcurrentStatsCounter())
+                .build();
+
+        //when
+        counted.put("foo1", "bar1");
+        counted.put("foo2", "bar2");
+        counted.put("foo2", "bar3");
+        counted.get("foo1");
+        counted.get("foo2");
+        counted.get("foo3");
+        counted.put("foo3", "bar3");
+        counted.put("foo4", "bar4");
+
+        //then
+        var stats = counted.stats();
+        assertEquals(new ForgettingMapStats(2, 1, 4, 1, 2, 1, 0), stats);
+        assertEquals(2.0 / 3, stats.hitRatio());
+    }
+
+    @Test
+    @DisplayName("without a stats counter, stats are all zero")
+    void testStatsDisabled() {
+        map.put("foo1", "bar1");
+        map.get("foo1");
+        assertEquals(new ForgettingMapStats(0, 0, 0, 0, 0, 0, 0), map.stats());
+    }
+
+    @Test
+    @DisplayName("with a weigher, one heavy put evicts as many least fetched entries as it needs, lightest fetched first")
+    void testWeightedEviction() {
+
+        //given
+        var weighted = ForgettingMap.<String, String>builder()
+                .weigher((key, value) -> value.length())
+                .maximumWeight(10)
+                .tieBreakingComparator(Map.Entry.comparingByKey())
+                .build();
+        weighted.put("a", "11");
+        weighted.put("b", "22");
+        weighted.put("c", "33");
+        weighted.put("d", "44");
+        weighted.put("e", "55");
+        weighted.get("a");
+        IntStream.range(0, 3).forEach(i -> weighted.get("b"));
+
+        //when
+        weighted.put("f", "666666");
+
+        //then
+        assertEquals(10, weighted.weight());
+        assertEquals(3, weighted.size());
+        assertEquals("22", weighted.get("b"));
+        assertEquals("11", weighted.get("a"));
+        assertEquals("666666", weighted.get("f"));
+    }
+
+    @Test
+    @DisplayName("with a weigher, successive heavy puts each evict their own least fetched ties in comparator order")
+    void testWeightedEvictionRepeated() {
+
+        //given
+        var weighted = ForgettingMap.<String, String>builder()
+                .weigher((key, value) -> value.length())
+                .maximumWeight(12)
+                .tieBreakingComparator(Map.Entry.comparingByKey())
+                .build();
+        Stream.of("a", "b", "c", "d", "e", "f").forEach(key -> weighted.put(key, key + key));
+        weighted.put("g", "666666");
+        weighted.get("g");
+        weighted.put("h", "hh");
+
+        //when
+        weighted.put("i", "999999");
+
+        //then
+        assertEquals(12, weighted.weight());
+        assertEquals(List.of("g", "i"), Stream.of("a", "b", "c", "d", "e", "f", "g", "h", "i")
+                .filter(weighted::containsKey).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("with a weigher, replacing a value with a heavier one evicts others, and an entry heavier than the maximum is never added")
+    void testWeightedReplacementAndOversize() {
+
+        //given
+        var weighted = ForgettingMap.<String, String>builder()
+                .weigher((key, value) -> value.length())
+                .maximumWeight(10)
+                .build();
+        weighted.put("a", "1111");
+        weighted.put("b", "2222");
+        weighted.get("b");
+
+        //when
+        weighted.put("b", "22222222");
+        weighted.put("c", "x".repeat(11));
+
+        //then
+        assertFalse(weighted.containsKey("a"));
+        assertFalse(weighted.containsKey("c"));
+        assertEquals("22222222", weighted.get("b"));
+        assertEquals(8, weighted.weight());
+    }
+
+    @Test
+    @DisplayName("a weigher needs a maximum weight")
+    void testWeigherValidated() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ForgettingMap.<String, String>builder().weigher((key, value) -> 1).build());
+    }
+
+
+    @Test
+    @DisplayName("with expireAfterWrite, get returns null once the entry's time is up, even between wheel ticks")
+    void testExpireAfterWrite() {
+
+        //given
+        var time = new AtomicLong();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .expireAfterWrite(Duration.ofMillis(10))
+                .ticker(time::get)
+                .build();
+        expiring.put("foo", "bar");
+
+        //when
+        time.addAndGet(Duration.ofMillis(9).toNanos());
+        var beforeDeadline = expiring.get("foo");
+        time.addAndGet(Duration.ofMillis(1).toNanos());
+
+        //then
+        assertEquals("bar", beforeDeadline);
+        assertNull(expiring.get("foo"));
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    @DisplayName("with expireAfterWrite, containsKey is false once the entry's time is up, with no get or put since")
+    void testContainsKeyExpires() {
+
+        //given
+        var time = new AtomicLong();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .expireAfterWrite(Duration.ofMillis(10))
+                .ticker(time::get)
+                .build();
+        expiring.put("foo", "bar");
+
+        //when
+        time.addAndGet(Duration.ofMillis(9).toNanos());
+        var beforeDeadline = expiring.containsKey("foo");
+        time.addAndGet(Duration.ofMillis(1).toNanos());
+
+        //then
+        assertTrue(beforeDeadline);
+        assertFalse(expiring.containsKey("foo"));
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    @DisplayName("a put at capacity reclaims an entry expired less than a wheel tick ago rather than evict a live one")
+    void testExpiredWithinTickReclaimedBeforeEviction() {
+
+        //given
+        var time = new AtomicLong();
+        var stats = new ConcurrentStatsCounter();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(2)
+                .statsCounter(stats)
+                .ticker(time::get)
+                .build();
+        expiring.put("popular", "bar");
+        IntStream.range(0, 5).forEach(i -> expiring.get("popular"));
+        expiring.put("brief", "baz", Duration.ofMillis(10));
+        IntStream.range(0, 10).forEach(i -> expiring.get("brief"));
+
+        //when
+        time.addAndGet(Duration.ofMillis(20).toNanos());
+        expiring.put("foo", "qux");
+
+        //then
+        assertEquals("bar", expiring.get("popular"));
+        assertEquals("qux", expiring.get("foo"));
+        assertNull(expiring.get("brief"));
+        assertEquals(1, stats.snapshot().getExpirationCount());
+        assertEquals(0, stats.snapshot().getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("with expireAfterAccess, each get extends the entry's life, and a put replaces the deadline")
+    void testExpireAfterAccess() {
+
+        //given
+        var time = new AtomicLong();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .expireAfterAccess(Duration.ofSeconds(10))
+                .ticker(time::get)
+                .build();
+        expiring.put("fetched", "bar");
+        expiring.put("idle", "baz");
+
+        //when
+        IntStream.range(0, 5).forEach(i -> {
+            time.addAndGet(Duration.ofSeconds(5).toNanos());
+            expiring.get("fetched");
+        });
+
+        //then
+        assertEquals("bar", expiring.get("fetched"));
+        assertFalse(expiring.containsKey("idle"));
+        assertEquals(1, expiring.size());
+    }
+
+    @Test
+    @DisplayName("a per-entry time-to-live overrides the map default and works on a map without expiry")
+    void testPerEntryTimeToLive() {
+
+        //given
+        var time = new AtomicLong();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .ticker(time::get)
+                .build();
+        expiring.put("short", "bar", Duration.ofMinutes(1));
+        expiring.put("long", "baz", Duration.ofHours(2));
+        expiring.put("forever", "qux");
+
+        //when
+        time.addAndGet(Duration.ofMinutes(90).toNanos());
+
+        //then
+        assertNull(expiring.get("short"));
+        assertEquals("baz", expiring.get("long"));
+        time.addAndGet(Duration.ofMinutes(31).toNanos());
+        assertNull(expiring.get("long"));
+        assertEquals("qux", expiring.get("forever"));
+    }
+
+    @Test
+    @DisplayName("an entry added before the first per-entry time-to-live keeps its fetch count when put with one")
+    void testTimeToLiveOnEntryAddedBeforeExpiry() {
+
+        //given
+        var time = new AtomicLong();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(2)
+                .ticker(time::get)
+                .build();
+        expiring.put("foo1", "bar1");
+        IntStream.range(0, 3).forEach(i -> expiring.get("foo1"));
+        expiring.put("foo2", "bar2");
+
+        //when
+        expiring.put("foo1", "baz1", Duration.ofMinutes(1));
+        expiring.put("foo3", "bar3");
+
+        //then
+        assertEquals("baz1", expiring.get("foo1"));
+        assertFalse(expiring.containsKey("foo2"));
+        time.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertNull(expiring.get("foo1"));
+        assertEquals("bar3", expiring.get("foo3"));
+    }
+
+    @Test
+    @DisplayName("expired entries are reclaimed as time passes, so a put at capacity takes their space rather than evicting")
+    void testExpiredReclaimedBeforeEviction() {
+
+        //given
+        var time = new AtomicLong();
+        var stats = new ConcurrentStatsCounter();
+        var expiring = ForgettingMap.<String, String>builder()
+                .capacity(4)
+                .statsCounter(stats)
+                .ticker(time::get)
+                .build();
+        expiring.put("stale1", "1", Duration.ofSeconds(5));
+        expiring.put("stale2", "2", Duration.ofSeconds(5));
+        expiring.put("fresh1", "3");
+        expiring.put("fresh2", "4");
+
+        //when
+        time.addAndGet(Duration.ofSeconds(10).toNanos());
+        expiring.put("new1", "5");
+        expiring.put("new2", "6");
+
+        //then
+        assertEquals(4, expiring.size());
+        assertEquals("3", expiring.get("fresh1"));
+        assertEquals("4", expiring.get("fresh2"));
+        assertEquals(2, stats.snapshot().getExpirationCount());
+        assertEquals(0, stats.snapshot().getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("expiry must be positive")
+    void testExpiryValidated() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ForgettingMap.<String, String>builder().capacity(4).expireAfterWrite(Duration.ZERO).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> map.put("foo", "bar", Duration.ofSeconds(-1)));
+    }
+
+
+    @Test
+    @DisplayName("computeIfAbsent loads a missing key once, adding it through the eviction path, and then counts fetches")
+    void testComputeIfAbsent() {
+
+        //given
+        var loads = new AtomicLong();
+        var stats = new ConcurrentStatsCounter();
+        var loading = ForgettingMap.<String, String>builder().capacity(2).statsCounter(stats).build();
+        loading.put("foo1", "bar1");
+        loading.get("foo1");
+        loading.put("lowest", "bar2");
+
+        //when
+        var loaded = loading.computeIfAbsent("foo3", key -> "loaded " + key + " " + loads.incrementAndGet());
+        var cached = loading.computeIfAbsent("foo3", key -> "loaded " + key + " " + loads.incrementAndGet());
+
+        //then
+        assertEquals("loaded foo3 1", loaded);
+        assertEquals("loaded foo3 1", cached);
+        assertFalse(loading.containsKey("lowest"));
+        assertEquals("bar1", loading.get("foo1"));
+        assertEquals(1, stats.snapshot().getMissCount());
+        assertEquals(1, stats.snapshot().getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("computeIfAbsent adds nothing when the mapping function returns null")
+    void testComputeIfAbsentNull() {
+        assertNull(map.computeIfAbsent("foo", key -> null));
+        assertFalse(map.containsKey("foo"));
+    }
+
+    @Test
+    @DisplayName("remove drops the key, and a conditional remove only if it still has the given value")
+    void testRemove() {
+
+        //given
+        map.put("foo1", "bar1");
+        map.put("foo2", "bar2");
+        map.get("foo1");
+
+        //when
+        var removed = map.remove("foo1");
+        var keptByCondition = map.remove("foo2", "other");
+        var removedByCondition = map.remove("foo2", "bar2");
+
+        //then
+        assertEquals("bar1", removed);
+        assertFalse(keptByCondition);
+        assertTrue(removedByCondition);
+        assertNull(map.remove("foo1"));
+        assertEquals(0, map.size());
+        map.put("foo3", "bar3");
+        assertEquals("bar3", map.get("foo3"));
+    }
+
+    @Test
+    @DisplayName("putAll evicts the least fetched for the whole batch in one pass, and getAll fills a reusable map")
+    void testBulkOperations() {
+
+        //given
+        var stats = new ConcurrentStatsCounter();
+        var bulk = ForgettingMap.<String, String>builder().capacity(4).statsCounter(stats).build();
+        bulk.put("foo1", "bar1");
+        bulk.put("foo2", "bar2");
+        bulk.put("lowest1", "bar3");
+        bulk.put("lowest2", "bar4");
+        bulk.getAll(List.of("foo1", "foo2"), new HashMap<>());
+
+        //when
+        bulk.putAll(Map.of("foo1", "baz1", "new1", "baz2", "new2", "baz3"));
+        var results = new HashMap<String, String>();
+        bulk.getAll(List.of("foo1", "foo2", "new1", "new2", "lowest1"), results);
+
+        //then
+        assertEquals(Map.of("foo1", "baz1", "foo2", "bar2", "new1", "baz2", "new2", "baz3"), results);
+        assertEquals(4, bulk.size());
+        assertEquals(2, stats.snapshot().getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("a putAll bigger than the capacity keeps the last entries of the batch")
+    void testBulkOverCapacity() {
+        var batch = new LinkedHashMap<String, String>();
+        IntStream.range(0, 6).forEach(i -> batch.put("foo" + i, "bar" + i));
+
+        map.putAll(batch);
+
+        assertEquals(4, map.size());
+        assertFalse(map.containsKey("foo0"));
+        assertFalse(map.containsKey("foo1"));
+        assertTrue(map.containsKey("foo5"));
+    }
+
+    @Test
+    @DisplayName("with ghost history, a key put again after eviction resumes its count and outlasts a less fetched key")
+    void testGhostHistory() {
+        for (int ghostHistory : new int[]{0, 16}) {
+
+            //given
+            var ghosts = ForgettingMap.<String, String>builder()
+                    .capacity(2).ghostHistory(ghostHistory).agingPeriod(1000).build();
+            ghosts.put("foo1", "bar1");
+            ghosts.get("foo1");
+            ghosts.put("foo2", "bar2");
+            ghosts.get("foo2");
+            ghosts.put("foo3", "bar3");
+            ghosts.get("foo3");
+
+            //when
+            ghosts.put("foo1", "bar1");
+            ghosts.put("foo4", "bar4");
+
+            //then
+            assertEquals(ghostHistory > 0, ghosts.containsKey("foo1"));
+            assertEquals(ghostHistory == 0, ghosts.containsKey("foo3"));
+        }
+    }
+
+    @Test
+    @DisplayName("with ghost history, a victim kept when admission turns away the new key is not remembered if removed")
+    void testGhostHistoryOnlyEvictions() {
+
+        //given
+        var ghosts = ForgettingMap.<String, String>builder()
+                .capacity(2).ghostHistory(16).agingPeriod(1000).tinyLfuAdmission(true).build();
+        ghosts.put("foo1", "bar1");
+        IntStream.range(0, 3).forEach(i -> ghosts.get("foo1"));
+        ghosts.put("foo2", "bar2");
+        IntStream.range(0, 3).forEach(i -> ghosts.get("foo2"));
+        ghosts.put("foo3", "bar3");
+        assertFalse(ghosts.containsKey("foo3"));
+
+        //when
+        ghosts.remove("foo1");
+        ghosts.put("foo1", "bar1");
+        IntStream.range(0, 10).forEach(i -> ghosts.get("foo4"));
+        ghosts.put("foo4", "bar4");
+
+        //then
+        assertFalse(ghosts.containsKey("foo1"));
+        assertTrue(ghosts.containsKey("foo2"));
+    }
+
+    @Test
+    @DisplayName("with ghost history and aging, a restored count is halved for each aging pass since the eviction")
+    void testGhostHistoryDecays() {
+
+        //given
+        var ghosts = ForgettingMap.<String, String>builder().capacity(2).ghostHistory(16).agingPeriod(20).build();
+        ghosts.put("foo1", "bar1");
+        IntStream.range(0, 4).forEach(i -> ghosts.get("foo1"));
+        ghosts.put("foo2", "bar2");
+        IntStream.range(0, 5).forEach(i -> ghosts.get("foo2"));
+        ghosts.put("foo3", "bar3");
+        IntStream.range(0, 8).forEach(i -> ghosts.get("foo3"));
+        assertFalse(ghosts.containsKey("foo1"));
+
+        //when
+        ghosts.put("foo1", "bar1");
+        ghosts.put("foo4", "bar4");
+
+        //then
+        assertFalse(ghosts.containsKey("foo1"));
+        assertTrue(ghosts.containsKey("foo3"));
+    }
+
+    @Test
+    @DisplayName("ghost history needs aging, so that restored counts decay")
+    void testGhostHistoryValidated() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ForgettingMap.<String, String>builder().capacity(2).ghostHistory(16).build());
+    }
+
+    @Test
+    @DisplayName("setMaximumSize shrinks a few evictions per operation, never growing meanwhile, and keeps the most fetched")
+    void testShrinkIncrementally() {
+
+        //given
+        var resizable = new ForgettingMap<Integer, Integer>(100);
+        IntStream.range(0, 100).forEach(i -> resizable.put(i, i));
+        IntStream.range(0, 20).forEach(resizable::get);
+
+        //when
+        resizable.setMaximumSize(20);
+
+        //then
+        assertEquals(100, resizable.size());
+        resizable.put(100, 100);
+        assertEquals(84, resizable.size());
+        resizable.put(101, 101);
+        assertEquals(68, resizable.size());
+        IntStream.range(0, 10).forEach(i -> resizable.get(-1));
+        assertEquals(20, resizable.size());
+        assertEquals(20, resizable.maximumSize());
+        IntStream.range(0, 20).forEach(i -> assertEquals(i, resizable.get(i)));
+        resizable.put(102, 102);
+        assertEquals(20, resizable.size());
+    }
+
+    @Test
+    @DisplayName("setMaximumSize grows at once, keeping the fetch counts, and rejects a negative bound")
+    void testGrow() {
+
+        //given
+        var resizable = new ForgettingMap<Integer, Integer>(2);
+        resizable.put(1, 1);
+        resizable.get(1);
+        resizable.put(2, 2);
+
+        //when
+        resizable.setMaximumSize(1000);
+        IntStream.range(3, 1001).forEach(i -> resizable.put(i, i));
+        resizable.put(1001, 1001);
+
+        //then
+        assertEquals(1000, resizable.size());
+        assertEquals(1, resizable.get(1));
+        assertFalse(resizable.containsKey(2));
+        assertThrows(IllegalArgumentException.class, () -> resizable.setMaximumSize(-1));
+    }
 
     //validate capacity
 
@@ -0,0 +1,36 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    private final FrequencySketch<String> sketch = new FrequencySketch<>(64);
+
+    @Test
+    @DisplayName("an unseen key has a frequency of zero")
+    void testUnseenKey() {
+        assertEquals(0, sketch.frequency("foo"));
+    }
+
+    @Test
+    @DisplayName("frequency counts increments, saturating at 15")
+    void testIncrement() {
+        IntStream.range(0, 5).forEach(i -> sketch.increment("foo"));
+        assertEquals(5, sketch.frequency("foo"));
+
+        IntStream.range(0, 20).forEach(i -> sketch.increment("foo"));
+        assertEquals(15, sketch.frequency("foo"));
+    }
+
+    @Test
+    @DisplayName("after the sample size is reached, every frequency is halved")
+    void testReset() {
+        IntStream.range(0, 8).forEach(i -> sketch.increment("foo"));
+        IntStream.range(0, 640).forEach(i -> sketch.increment("key" + i));
+
+        assertTrue(sketch.frequency("foo") <= 4);
+    }
+}
@@ -0,0 +1,34 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntForgettingMapTest {
+
+    @Test
+    @DisplayName("evicts exactly as ForgettingMap without a comparator, for a random mix of gets and puts")
+    void testMatchesForgettingMap() {
+        var expected = new ForgettingMap<Integer, Integer>(50);
+        var actual = new IntForgettingMap<Integer>(50);
+        var random = new Random(13);
+
+        IntStream.range(0, 50_000).forEach(i -> {
+            int key = (int) Math.abs(random.nextGaussian() * 60) - 30;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.put(key, i), actual.put(key, i));
+            } else {
+                assertEquals(expected.get(key), actual.get(key));
+            }
+        });
+        assertEquals(expected.size(), actual.size());
+    }
+
+    @Test
+    @DisplayName("capacity must be positive")
+    void testCapacityValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new IntForgettingMap<String>(0));
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongForgettingMapTest {
+
+    private final LongForgettingMap<String> map = new LongForgettingMap<>(4);
+
+    @Test
+    @DisplayName("get returns null if key is never set, and the value once it is")
+    void testGetAndPut() {
+        assertNull(map.get(1L));
+        assertNull(map.put(1L, "bar"));
+        assertEquals("bar", map.get(1L));
+        assertEquals("bar", map.put(1L, "baz"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("at capacity, the key with least fetches is evicted")
+    void testEvictionAtCapacity() {
+
+        //given
+        map.put(1L, "bar1");
+        map.put(2L, "bar2");
+        map.put(3L, "bar3");
+        map.put(Long.MAX_VALUE, "bar4");
+        IntStream.range(1, 5).forEach(i -> map.get(1L));
+        IntStream.range(1, 4).forEach(i -> map.get(2L));
+        IntStream.range(1, 3).forEach(i -> map.get(3L));
+
+        //when
+        map.put(5L, "bar5");
+        IntStream.range(1, 4).forEach(i -> map.get(5L));
+        map.put(6L, "bar6");
+
+        //then
+        assertEquals(4, map.size());
+        assertFalse(map.containsKey(Long.MAX_VALUE));
+        assertFalse(map.containsKey(3L));
+        assertEquals("bar5", map.get(5L));
+        assertEquals("bar6", map.get(6L));
+    }
+
+    @Test
+    @DisplayName("evicts exactly as ForgettingMap without a comparator, for a random mix of gets and puts")
+    void testMatchesForgettingMap() {
+        var expected = new ForgettingMap<Long, String>(50);
+        var actual = new LongForgettingMap<String>(50);
+        var random = new Random(11);
+
+        IntStream.range(0, 50_000).forEach(i -> {
+            long key = (long) Math.abs(random.nextGaussian() * 60) * 0x100000001L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.put(key, "bar" + i), actual.put(key, "bar" + i));
+            } else {
+                assertEquals(expected.get(key), actual.get(key));
+            }
+        });
+        assertEquals(expected.size(), actual.size());
+    }
+}
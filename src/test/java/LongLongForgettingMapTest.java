@@ -0,0 +1,36 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongForgettingMapTest {
+
+    private final LongLongForgettingMap map = new LongLongForgettingMap(2, -1);
+
+    @Test
+    @DisplayName("get and put return the no entry value when the key is absent")
+    void testNoEntryValue() {
+        assertEquals(-1, map.get(7));
+        assertEquals(-1, map.put(7, 70));
+        assertEquals(70, map.put(7, 71));
+        assertEquals(71, map.get(7));
+    }
+
+    @Test
+    @DisplayName("at capacity, the key with least fetches is evicted")
+    void testEvictionAtCapacity() {
+        map.put(1, 10);
+        map.put(2, 20);
+        IntStream.range(0, 3).forEach(i -> map.get(1));
+        map.get(2);
+
+        map.put(3, 30);
+
+        assertEquals(2, map.size());
+        assertEquals(-1, map.get(2));
+        assertEquals(10, map.get(1));
+        assertEquals(30, map.get(3));
+    }
+}
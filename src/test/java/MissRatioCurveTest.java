@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MissRatioCurveTest {
+
+    @Test
+    @DisplayName("sampling every key, a loop hits only in a capacity that holds the whole loop")
+    void testExactLoop() {
+
+        //given
+        var curve = MissRatioCurve.builder().samplingRate(1).maxTrackedKeys(1000).build();
+
+        //when
+        IntStream.range(0, 10).forEach(round -> IntStream.range(0, 100).forEach(curve::record));
+
+        //then
+        assertEquals(1000, curve.sampledCount());
+        assertEquals(0.0, curve.hitRatio(99), 1e-9);
+        assertEquals(0.9, curve.hitRatio(100), 1e-9);
+        assertEquals(0.9, curve.hitRatio(10_000), 1e-9);
+        assertEquals(1.0, curve.missRatio(50), 1e-9);
+    }
+
+    @Test
+    @DisplayName("sampling a tenth of the keys, the curve is close to the hit ratio of a real LRU at each capacity")
+    void testSampledEstimate() {
+
+        //given
+        var curve = MissRatioCurve.builder().samplingRate(0.1).build();
+        var random = new Random(7);
+        var keys = IntStream.range(0, 300_000)
+                .map(i -> (int) (Math.pow(random.nextDouble(), 3) * 50_000))
+                .toArray();
+
+        //when
+        for (int key : keys) {
+            curve.record(key);
+        }
+
+        //then
+        for (int capacity : new int[]{500, 2000, 8000}) {
+            assertEquals(lruHitRatio(keys, capacity), curve.hitRatio(capacity), 0.03, "capacity " + capacity);
+        }
+        assertEquals(300_000, curve.requestCount());
+    }
+
+    @Test
+    @DisplayName("a curve given to a map measures gets and computeIfAbsent, including lock-free buffered reads, but not puts")
+    void testAttachedToMaps() {
+
+        //given
+        var curve = MissRatioCurve.builder().samplingRate(1).build();
+        var map = ForgettingMap.<Integer, Integer>builder().capacity(10).missRatioCurve(curve).build();
+        var concurrent = new ConcurrentForgettingMap<Integer, Integer>(10, 2, true,
+                capacity -> ForgettingMap.<Integer, Integer>builder().capacity(capacity).missRatioCurve(curve).build());
+
+        //when
+        map.put(1, 1);
+        map.get(1);
+        map.computeIfAbsent(2, key -> key);
+        concurrent.put(1, 1);
+        concurrent.get(1);
+        concurrent.get(2);
+
+        //then
+        assertEquals(4, curve.requestCount());
+    }
+
+    private static double lruHitRatio(int[] keys, int capacity) {
+        var lru = new LinkedHashMap<Integer, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+        long hits = 0;
+        for (int key : keys) {
+            if (lru.get(key) != null) {
+                hits++;
+            } else {
+                lru.put(key, Boolean.TRUE);
+            }
+        }
+        return (double) hits / keys.length;
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapForgettingMapTest {
+
+    private final OffHeapForgettingMap<String, String> map =
+            new OffHeapForgettingMap<>(4, Serializer.strings(), Serializer.strings(), 4096);
+
+    @Test
+    @DisplayName("get returns null if key is never set, and the value once it is")
+    void testGetAndPut() {
+        assertNull(map.get("foo"));
+        assertNull(map.put("foo", "bar"));
+        assertEquals("bar", map.get("foo"));
+        assertEquals("bar", map.put("foo", "a much longer value that needs a bigger chunk"));
+        assertEquals("a much longer value that needs a bigger chunk", map.get("foo"));
+        assertTrue(map.containsKey("foo"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("at capacity, the key with least fetches is evicted")
+    void testEvictionAtCapacity() {
+
+        //given
+        map.put("foo1", "bar1");
+        map.put("foo2", "bar2");
+        map.put("foo3", "bar3");
+        map.put("lowest", "bar4");
+        IntStream.range(1, 5).forEach(i -> map.get("foo1"));
+        IntStream.range(1, 4).forEach(i -> map.get("foo2"));
+        IntStream.range(1, 3).forEach(i -> map.get("foo3"));
+        IntStream.range(1, 2).forEach(i -> map.get("lowest"));
+
+        //when
+        map.put("foo5", "bar5");
+
+        //then
+        assertEquals(4, map.size());
+        assertNull(map.get("lowest"));
+        assertEquals("bar5", map.get("foo5"));
+    }
+
+    @Test
+    @DisplayName("evicts exactly as ForgettingMap without a comparator, and reuses freed memory, for random traffic")
+    void testMatchesForgettingMap() {
+        var expected = new ForgettingMap<Long, byte[]>(100);
+        var actual = new OffHeapForgettingMap<Long, byte[]>(100, Serializer.longs(), Serializer.bytes(), 1 << 16);
+        var random = new Random(17);
+
+        IntStream.range(0, 50_000).forEach(i -> {
+            long key = (long) Math.abs(random.nextGaussian() * 120);
+            if (random.nextInt(3) == 0) {
+                var value = new byte[random.nextInt(1000)];
+                random.nextBytes(value);
+                var previous = expected.put(key, value);
+                var actualPrevious = actual.put(key, value);
+                assertArrayEquals(previous, actualPrevious);
+            } else {
+                assertArrayEquals(expected.get(key), actual.get(key));
+            }
+        });
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.offHeapBytes() <= 4 << 16, "freed records are reused");
+    }
+
+    @Test
+    @DisplayName("a record bigger than a slab is rejected, leaving the map unchanged")
+    void testRecordTooLarge() {
+        IntStream.range(0, 4).forEach(i -> map.put("foo" + i, "bar" + i));
+
+        assertThrows(IllegalArgumentException.class, () -> map.put("foo", "x".repeat(5000)));
+        assertThrows(IllegalArgumentException.class, () -> map.put("foo0", "x".repeat(5000)));
+
+        assertEquals(4, map.size());
+        IntStream.range(0, 4).forEach(i -> assertEquals("bar" + i, map.get("foo" + i)));
+    }
+}
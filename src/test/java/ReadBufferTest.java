@@ -0,0 +1,40 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadBufferTest {
+
+    private final ReadBuffer<Integer> buffer = new ReadBuffer<>(1);
+
+    @Test
+    @DisplayName("drain returns offered elements in order, and only once")
+    void testDrainInOrder() {
+        IntStream.range(0, 5).forEach(buffer::offer);
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drain(drained::add);
+        buffer.drain(drained::add);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+    }
+
+    @Test
+    @DisplayName("offer signals a drain once a stripe fills, and drops elements until it is drained")
+    void testFullStripeIsLossy() {
+        IntStream.range(0, ReadBuffer.STRIPE_SIZE - 1).forEach(i -> assertFalse(buffer.offer(i)));
+        assertTrue(buffer.offer(ReadBuffer.STRIPE_SIZE - 1));
+        assertTrue(buffer.offer(-1));
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drain(drained::add);
+
+        assertEquals(ReadBuffer.STRIPE_SIZE, drained.size());
+        assertFalse(drained.contains(-1));
+        assertFalse(buffer.offer(42));
+    }
+}
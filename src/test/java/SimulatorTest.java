@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatorTest {
+
+    @Test
+    @DisplayName("options are read after the trace, and default to a capacity of 1000 and every policy")
+    void testParseOptions() {
+        var options = Simulator.Options.parse(new String[]{"zipf:100:1000", "-c", "10,20", "-p", "lru,fifo", "-o", "out"});
+        assertEquals("zipf:100:1000", options.trace);
+        assertEquals(List.of(10, 20), options.capacities);
+        assertEquals(List.of("lru", "fifo"), options.policies);
+        assertEquals(Path.of("out"), options.output);
+
+        var defaults = Simulator.Options.parse(new String[]{"trace.txt"});
+        assertEquals(List.of(1000), defaults.capacities);
+        assertTrue(defaults.policies.contains("forgetting"));
+        assertNull(defaults.output);
+    }
+
+    @Test
+    @DisplayName("a missing trace, an unknown option, an option without a value or a capacity that is not a number is rejected")
+    void testParseRejectsBadOptions() {
+        assertThrows(IllegalArgumentException.class, () -> Simulator.Options.parse(new String[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> Simulator.Options.parse(new String[]{"trace.txt", "-x", "1"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> Simulator.Options.parse(new String[]{"trace.txt", "-c", "10", "-p"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> Simulator.Options.parse(new String[]{"trace.txt", "-c", "ten"}));
+    }
+
+    @Test
+    @DisplayName("every policy replays a skewed trace with a sane hit ratio, and forgetting-lru matches lru exactly")
+    void testPoliciesOnZipf() {
+
+        //given
+        var trace = SyntheticTraces.parse("zipf:1000:20000");
+
+        //when, then
+        for (var policy : Policies.names()) {
+            var result = Simulator.simulate(trace, policy, 100);
+            assertTrue(result.hitRatio() > 0.2 && result.hitRatio() < 1, policy + " " + result.hitRatio());
+        }
+        assertEquals(Simulator.simulate(trace, "lru", 100).hitRatio(),
+                Simulator.simulate(trace, "forgetting-lru", 100).hitRatio());
+    }
+
+    @Test
+    @DisplayName("a loop over more keys than fit never hits with lru, while every key fits once capacity covers the loop")
+    void testLoop() {
+        var trace = SyntheticTraces.parse("loop:200:2000");
+        assertEquals(0, Simulator.simulate(trace, "lru", 100).hitRatio());
+        assertEquals(0.9, Simulator.simulate(trace, "forgetting", 200).hitRatio(), 1e-9);
+    }
+}
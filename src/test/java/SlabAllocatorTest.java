@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlabAllocatorTest {
+
+    @Test
+    @DisplayName("chunks are carved from the slab in turn, and a chunk that does not fit in what is left starts a new slab")
+    void testBumpAllocation() {
+
+        //given
+        var allocator = new SlabAllocator(64);
+
+        //when
+        long first = allocator.allocate(32);
+        long second = allocator.allocate(20);
+        long third = allocator.allocate(16);
+
+        //then
+        assertEquals(0, first);
+        assertEquals(32, second);
+        assertEquals(1L << 32, third);
+        assertEquals(128, allocator.allocatedBytes());
+    }
+
+    @Test
+    @DisplayName("at the largest slab size, a chunk filling the whole slab starts a new slab without the offset overflowing")
+    void testLargestSlabSize() {
+
+        //given
+        var allocator = new SlabAllocator(1 << 30, 16);
+
+        //when
+        long first = allocator.allocate(1 << 30);
+        long second = allocator.allocate(1 << 30);
+
+        //then
+        assertEquals(0, first);
+        assertEquals(1L << 32, second);
+        assertEquals(2L << 30, allocator.allocatedBytes());
+    }
+}
@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+    private final TimerWheel<String, String> wheel = new TimerWheel<>(0, node -> expired.add(node.getKey()));
+
+    @Test
+    @DisplayName("a node is expired once the wheel passes its bucket, and not before")
+    void testExpiresWhenDue() {
+
+        //given
+        schedule("foo", Duration.ofSeconds(3));
+
+        //when
+        wheel.advance(Duration.ofSeconds(2).toNanos());
+        var early = new ArrayList<>(expired);
+        wheel.advance(Duration.ofSeconds(5).toNanos());
+
+        //then
+        assertTrue(early.isEmpty());
+        assertEquals(List.of("foo"), expired);
+    }
+
+    @Test
+    @DisplayName("nodes far in the future cascade down the levels and expire within a second of their deadline")
+    void testCascade() {
+
+        //given
+        var random = new Random(42);
+        var deadlines = new long[500];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = (long) (random.nextDouble() * Duration.ofDays(30).toNanos());
+        }
+        Arrays.sort(deadlines);
+        for (int i = 0; i < deadlines.length; i++) {
+            var node = new ForgettingMap.ExpiringNode<String, String>(Integer.toString(i), 0, null);
+            node.expiresAt = deadlines[i];
+            wheel.schedule(node);
+        }
+
+        //when, then
+        var expiredKeys = new HashSet<Integer>();
+        int overdue = 0;
+        long step = Duration.ofSeconds(20).toNanos();
+        for (long time = step; overdue < deadlines.length; time += step) {
+            wheel.advance(time);
+            for (var key : expired) {
+                assertTrue(deadlines[Integer.parseInt(key)] <= time);
+                expiredKeys.add(Integer.parseInt(key));
+            }
+            expired.clear();
+            for (; overdue < deadlines.length && deadlines[overdue] + (1L << 30) <= time; overdue++) {
+                assertTrue(expiredKeys.contains(overdue), "overdue " + overdue);
+            }
+        }
+        assertEquals(deadlines.length, expiredKeys.size());
+    }
+
+    @Test
+    @DisplayName("within the current second, nodes expire on the first advance at or after their deadline, in any order")
+    void testExpiresExactlyInCurrentBucket() {
+
+        //given
+        var random = new Random(7);
+        long tick = 1L << 30;
+        var deadlines = new long[400];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = 2 * tick + (long) (random.nextDouble() * tick);
+            if (i == deadlines.length / 2) {
+                // the rest are scheduled once the bucket is current, into its sorted list
+                wheel.advance(2 * tick);
+            }
+            var node = new ForgettingMap.ExpiringNode<String, String>(Integer.toString(i), 0, null);
+            node.expiresAt = deadlines[i];
+            wheel.schedule(node);
+        }
+
+        //when, then
+        for (long time = 2 * tick; time < 3 * tick; time += tick / 100) {
+            wheel.advance(time);
+            for (int i = 0; i < deadlines.length; i++) {
+                assertEquals(deadlines[i] <= time, expired.contains(Integer.toString(i)), "node " + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("a cancelled node never expires")
+    void testCancel() {
+        var node = schedule("foo", Duration.ofSeconds(3));
+        wheel.cancel(node);
+        wheel.advance(Duration.ofMinutes(5).toNanos());
+        assertTrue(expired.isEmpty());
+    }
+
+    private ForgettingMap.ExpiringNode<String, String> schedule(String key, Duration delay) {
+        var node = new ForgettingMap.ExpiringNode<String, String>(key, 0, null);
+        node.expiresAt = delay.toNanos();
+        wheel.schedule(node);
+        return node;
+    }
+}
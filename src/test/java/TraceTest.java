@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("binary traces read back every key written, including large and negative steps between keys")
+    void testBinaryRoundTrip() throws IOException {
+
+        //given
+        var keys = new long[]{0, 1, 2, 1, -1, 300, Long.MAX_VALUE, Long.MIN_VALUE, 42, 42, -1_000_000_007L};
+        var file = directory.resolve("keys.trace");
+        try (var out = Files.newOutputStream(file)) {
+            BinaryTrace.write(keys, out);
+        }
+
+        //when
+        var trace = Trace.read(file);
+
+        //then
+        assertArrayEquals(keys, trace.keys());
+        assertEquals(9, trace.distinctKeys());
+    }
+
+    @Test
+    @DisplayName("a gzipped binary trace is detected and read like a plain one")
+    void testGzippedBinary() throws IOException {
+
+        //given
+        var keys = new long[]{5, 3, 8, 13, 3};
+        var file = directory.resolve("keys.trace.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            BinaryTrace.write(keys, out);
+        }
+
+        //when, then
+        assertArrayEquals(keys, Trace.read(file).keys());
+    }
+
+    @Test
+    @DisplayName("a trace recorded by AccessRecorder replays the key hashes of its gets, in order, and skips its puts")
+    void testRecordedRoundTrip() throws IOException {
+
+        //given
+        var file = directory.resolve("recorded.trace");
+        var recorder = AccessRecorder.builder().file(file).samplingRate(1).batchSize(1).build();
+        var map = ForgettingMap.<Long, String>builder().capacity(4).accessRecorder(recorder).build();
+        map.put(1L, "foo");
+        map.get(1L);
+        map.get(-7L);
+        map.put(300L, "bar");
+        map.get(300L);
+        map.get(1L);
+        recorder.close();
+
+        //when
+        var trace = Trace.read(file);
+
+        //then
+        assertArrayEquals(new long[]{1, Long.hashCode(-7L), 300, 1}, trace.keys());
+    }
+
+    @Test
+    @DisplayName("text traces take the first token of each line, hash keys that are not numbers, and skip comments and blanks")
+    void testText() throws IOException {
+
+        //given
+        var file = directory.resolve("keys.txt");
+        Files.writeString(file, "# header\n12 GET 100\n\n  -3\tPUT\nfoo bar\nfoo\n12\n", StandardCharsets.UTF_8);
+
+        //when
+        var keys = Trace.read(file).keys();
+
+        //then
+        assertEquals(5, keys.length);
+        assertArrayEquals(new long[]{12, -3}, Arrays.copyOf(keys, 2));
+        assertEquals(keys[2], keys[3]);
+        assertNotEquals(12, keys[2]);
+        assertEquals(12, keys[4]);
+    }
+
+    @Test
+    @DisplayName("a binary trace cut short inside a record, or of an unknown version, fails rather than returning keys")
+    void testCorruptBinary() throws IOException {
+
+        //given
+        var out = new ByteArrayOutputStream();
+        BinaryTrace.write(new long[]{1, Long.MAX_VALUE}, out);
+        var truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+        var unknownVersion = out.toByteArray();
+        unknownVersion[BinaryTrace.MAGIC.length] = 9;
+
+        //when, then
+        assertThrows(EOFException.class, () -> BinaryTrace.read(new ByteArrayInputStream(truncated)));
+        assertThrows(IOException.class, () -> BinaryTrace.read(new ByteArrayInputStream(unknownVersion)));
+    }
+
+    @Test
+    @DisplayName("synthetic traces are generated from their spec, the same every time, and other specs are not synthetic")
+    void testSynthetic() {
+        var zipf = SyntheticTraces.parse("zipf:100:1000");
+        assertEquals(1000, zipf.length());
+        assertTrue(zipf.distinctKeys() <= 100);
+        assertArrayEquals(zipf.keys(), SyntheticTraces.parse("zipf:100:1000").keys());
+        assertArrayEquals(new long[]{0, 1, 2, 0, 1}, SyntheticTraces.parse("loop:3:5").keys());
+        assertNull(SyntheticTraces.parse("trace.txt"));
+    }
+}